@@ -0,0 +1,477 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import merrimackutil.json.JSONSerializable;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+/**
+ * This class decodes CBOR (RFC 8949) data items into JSON values. Maps
+ * become {@code JSONObject}s and must have text keys, arrays become
+ * {@code JSONArray}s, integers become {@code Long}s, floats of any
+ * precision become {@code Double}s, and text strings, booleans and null
+ * map to their Java counterparts. Undefined decodes as null and tags are
+ * ignored. Both definite and indefinite length items are accepted; byte
+ * strings have no JSON form and are rejected.
+ * <p>
+ * Items are decoded one at a time from an {@code InputStream}, read
+ * through an internal buffer, or from a {@code ByteBuffer}.
+ * @author Zach Kissel
+ */
+public class CborDecoder
+{
+  private static final int BUFFER_SIZE = 8192;  // Size of the input buffer.
+  private static final int MAX_DEPTH = 512;     // The deepest nesting allowed.
+
+  // CBOR major types.
+  private static final int UNSIGNED = 0;
+  private static final int NEGATIVE = 1;
+  private static final int BYTES = 2;
+  private static final int TEXT = 3;
+  private static final int ARRAY = 4;
+  private static final int MAP = 5;
+  private static final int TAG = 6;
+
+  private static final int INDEFINITE = 31;     // Additional info for indefinite length.
+  private static final int BREAK = 0xff;        // Ends an indefinite length item.
+
+  private InputStream in;     // The input stream, null if reading a byte buffer.
+  private ByteBuffer src;     // The input buffer when reading a byte buffer.
+  private byte[] buf;         // Bytes read from the stream but not yet decoded.
+  private int pos;            // Offset of the next byte in buf.
+  private int limit;          // Offset one past the last byte in buf.
+  private int depth;          // The current nesting depth.
+
+  /**
+   * Constructs a decoder that reads from {@code in}. The decoder may read
+   * ahead of the item being decoded.
+   * @param in the stream to read from.
+   */
+  public CborDecoder(InputStream in)
+  {
+    this.in = in;
+    src = null;
+    buf = new byte[BUFFER_SIZE];
+    pos = 0;
+    limit = 0;
+  }
+
+  /**
+   * Constructs a decoder that reads from {@code src} starting at its
+   * current position. The position is advanced past each item decoded.
+   * @param src the buffer to read from.
+   */
+  public CborDecoder(ByteBuffer src)
+  {
+    in = null;
+    this.src = src;
+  }
+
+  /**
+   * Decodes a single CBOR encoded value.
+   * @param data the encoded value.
+   * @return the decoded value.
+   * @throws IllegalArgumentException if the data is not a single valid
+   * CBOR item with a JSON form.
+   */
+  public static Object decode(byte[] data)
+  {
+    ByteBuffer src = ByteBuffer.wrap(data);
+
+    try
+    {
+      Object res = new CborDecoder(src).read();
+      if (src.hasRemaining())
+        throw new IllegalArgumentException("Invalid CBOR encoding, unexpected trailing bytes.");
+      return res;
+    }
+    catch (IOException ex)
+    {
+      throw new IllegalArgumentException("Invalid CBOR encoding, truncated data.", ex);
+    }
+  }
+
+  /**
+   * Decodes the next item.
+   * @return the decoded value.
+   * @throws IOException if the input can not be read or ends early.
+   * @throws IllegalArgumentException if the item is not valid CBOR with
+   * a JSON form.
+   */
+  public Object read() throws IOException
+  {
+    int initial = readByte();
+
+    if (initial == BREAK)
+      throw new IllegalArgumentException("Invalid CBOR encoding, unexpected break.");
+    return readItem(initial);
+  }
+
+  /**
+   * Decodes the next item into the serializable object {@code obj}.
+   * @param obj the object to deserialize into.
+   * @throws IOException if the input can not be read or ends early.
+   * @throws InvalidObjectException if the item does not match the object.
+   * @throws IllegalArgumentException if the item is not valid CBOR with
+   * a JSON form.
+   */
+  public void readInto(JSONSerializable obj) throws IOException
+  {
+    Object val = read();
+
+    if (!(val instanceof JSONType))
+      throw new InvalidObjectException("Expected an object or array.");
+    obj.deserialize((JSONType) val);
+  }
+
+  /*************************************************
+   *
+   * Private Methods
+   *
+   *************************************************/
+
+  /**
+   * Decodes the item starting with byte {@code initial}.
+   * @param initial the initial byte of the item.
+   * @return the decoded value.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private Object readItem(int initial) throws IOException
+  {
+    int major = initial >>> 5;
+    int info = initial & 0x1f;
+
+    switch (major)
+    {
+      case UNSIGNED:
+      {
+        long n = readArgument(info);
+        if (n < 0)
+          return Double.valueOf(unsignedToDouble(n));
+        return Long.valueOf(n);
+      }
+      case NEGATIVE:
+      {
+        long n = readArgument(info);
+        if (n < 0)
+          return Double.valueOf(-1.0 - unsignedToDouble(n));
+        return Long.valueOf(~n);     // -1 - n
+      }
+      case BYTES:
+        throw new IllegalArgumentException("Invalid CBOR encoding, byte strings have no JSON form.");
+      case TEXT:
+        return readText(info);
+      case ARRAY:
+        return readArray(info);
+      case MAP:
+        return readMap(info);
+      case TAG:
+      {
+        // Tags nest like arrays, so a chain of them counts toward the depth.
+        readArgument(info);
+        enter();
+        Object val = read();
+        depth--;
+        return val;
+      }
+      default:
+        return readSimple(info);
+    }
+  }
+
+  /**
+   * Decodes a text string.
+   * @param info the additional information of the initial byte.
+   * @return the string.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private String readText(int info) throws IOException
+  {
+    if (info != INDEFINITE)
+      return new String(readBytes(length(readArgument(info))), StandardCharsets.UTF_8);
+
+    // An indefinite string is a series of definite strings.
+    ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+    int initial;
+    while ((initial = readByte()) != BREAK)
+    {
+      if ((initial >>> 5) != TEXT || (initial & 0x1f) == INDEFINITE)
+        throw new IllegalArgumentException("Invalid CBOR encoding, bad text chunk.");
+      chunks.write(readBytes(length(readArgument(initial & 0x1f))));
+    }
+    return chunks.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes an array.
+   * @param info the additional information of the initial byte.
+   * @return the array.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private JSONArray readArray(int info) throws IOException
+  {
+    JSONArray array = new JSONArray();
+
+    enter();
+    if (info == INDEFINITE)
+    {
+      int initial;
+      while ((initial = readByte()) != BREAK)
+        array.add(readItem(initial));
+    }
+    else
+    {
+      int len = length(readArgument(info));
+      for (int i = 0; i < len; i++)
+        array.add(read());
+    }
+    depth--;
+    return array;
+  }
+
+  /**
+   * Decodes a map.
+   * @param info the additional information of the initial byte.
+   * @return the map as an object.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private JSONObject readMap(int info) throws IOException
+  {
+    JSONObject obj = new JSONObject();
+
+    enter();
+    if (info == INDEFINITE)
+    {
+      int initial;
+      while ((initial = readByte()) != BREAK)
+        obj.put(readKey(initial), read());
+    }
+    else
+    {
+      int len = length(readArgument(info));
+      for (int i = 0; i < len; i++)
+        obj.put(readKey(readByte()), read());
+    }
+    depth--;
+    return obj;
+  }
+
+  /**
+   * Decodes the key of a map entry.
+   * @param initial the initial byte of the key.
+   * @return the key.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private String readKey(int initial) throws IOException
+  {
+    if ((initial >>> 5) != TEXT)
+      throw new IllegalArgumentException("Invalid CBOR encoding, map keys must be text.");
+    return readText(initial & 0x1f);
+  }
+
+  /**
+   * Decodes a simple value or float.
+   * @param info the additional information of the initial byte.
+   * @return the value.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private Object readSimple(int info) throws IOException
+  {
+    switch (info)
+    {
+      case 20:
+        return Boolean.FALSE;
+      case 21:
+        return Boolean.TRUE;
+      case 22:      // null
+      case 23:      // undefined
+        return null;
+      case 25:
+        return Double.valueOf(halfToDouble((readByte() << 8) | readByte()));
+      case 26:
+        return Double.valueOf(Float.intBitsToFloat(readInt()));
+      case 27:
+        return Double.valueOf(Double.longBitsToDouble(((long) readInt() << 32) |
+            (readInt() & 0xffffffffL)));
+      default:
+        throw new IllegalArgumentException("Invalid CBOR encoding, unsupported simple value " + info + ".");
+    }
+  }
+
+  /**
+   * Reads the argument that follows an initial byte.
+   * @param info the additional information of the initial byte.
+   * @return the argument, as an unsigned 64-bit value.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private long readArgument(int info) throws IOException
+  {
+    if (info < 24)
+      return info;
+
+    switch (info)
+    {
+      case 24:
+        return readByte();
+      case 25:
+        return (readByte() << 8) | readByte();
+      case 26:
+        return readInt() & 0xffffffffL;
+      case 27:
+        return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+      default:
+        throw new IllegalArgumentException("Invalid CBOR encoding, bad additional information " + info + ".");
+    }
+  }
+
+  /**
+   * Checks a length read from the input.
+   * @param n the length.
+   * @return the length as an int.
+   */
+  private static int length(long n)
+  {
+    if (n < 0 || n > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("Invalid CBOR encoding, length too large.");
+    return (int) n;
+  }
+
+  /**
+   * Enters a nested array, map or tag.
+   */
+  private void enter()
+  {
+    if (++depth > MAX_DEPTH)
+      throw new IllegalArgumentException("Invalid CBOR encoding, nested too deeply.");
+  }
+
+  /**
+   * Converts an unsigned 64-bit value that does not fit in a long.
+   * @param n the value.
+   * @return the value as a double.
+   */
+  private static double unsignedToDouble(long n)
+  {
+    return (double) (n >>> 1) * 2.0 + (n & 1);
+  }
+
+  /**
+   * Converts an IEEE 754 half precision float.
+   * @param bits the bits of the half precision float.
+   * @return the value as a double.
+   */
+  private static double halfToDouble(int bits)
+  {
+    int exp = (bits >>> 10) & 0x1f;
+    int mant = bits & 0x3ff;
+    double val;
+
+    if (exp == 0)
+      val = Math.scalb((double) mant, -24);
+    else if (exp != 31)
+      val = Math.scalb((double) (mant + 1024), exp - 25);
+    else
+      val = (mant == 0) ? Double.POSITIVE_INFINITY : Double.NaN;
+    return ((bits & 0x8000) != 0) ? -val : val;
+  }
+
+  /**
+   * Reads a 32-bit big endian integer.
+   * @return the integer.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private int readInt() throws IOException
+  {
+    return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+  }
+
+  /**
+   * Reads a byte.
+   * @return the byte as an unsigned value.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private int readByte() throws IOException
+  {
+    if (src != null)
+    {
+      if (!src.hasRemaining())
+        throw new EOFException("Unexpected end of CBOR data.");
+      return src.get() & 0xff;
+    }
+
+    if (pos == limit && !fill())
+      throw new EOFException("Unexpected end of CBOR data.");
+    return buf[pos++] & 0xff;
+  }
+
+  /**
+   * Reads {@code len} bytes.
+   * @param len the number of bytes.
+   * @return the bytes.
+   * @throws IOException if the input can not be read or ends early.
+   */
+  private byte[] readBytes(int len) throws IOException
+  {
+    if (src != null)
+    {
+      if (src.remaining() < len)
+        throw new EOFException("Unexpected end of CBOR data.");
+      byte[] res = new byte[len];
+      src.get(res);
+      return res;
+    }
+
+    // Grow the result as the data arrives so a bad length can not
+    // allocate a huge array up front.
+    ByteArrayOutputStream res = new ByteArrayOutputStream(Math.min(len, BUFFER_SIZE));
+    while (len > 0)
+    {
+      if (pos == limit && !fill())
+        throw new EOFException("Unexpected end of CBOR data.");
+      int n = Math.min(len, limit - pos);
+      res.write(buf, pos, n);
+      pos += n;
+      len -= n;
+    }
+    return res.toByteArray();
+  }
+
+  /**
+   * Refills the buffer from the stream.
+   * @return false if the stream has ended; otherwise, true.
+   * @throws IOException if the stream can not be read.
+   */
+  private boolean fill() throws IOException
+  {
+    int n = in.read(buf, 0, buf.length);
+
+    if (n <= 0)
+      return false;
+    pos = 0;
+    limit = n;
+    return true;
+  }
+}
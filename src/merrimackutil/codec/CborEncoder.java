@@ -0,0 +1,346 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import merrimackutil.json.JSONSerializable;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+
+/**
+ * This class encodes JSON values as CBOR (RFC 8949). Objects become maps
+ * with text keys, arrays become arrays, integers become CBOR integers,
+ * doubles become single or double precision floats (whichever holds the
+ * value exactly), and strings, booleans and null map to their CBOR
+ * counterparts. Values are written as they are encoded, either to an
+ * {@code OutputStream} through an internal buffer or straight into a
+ * {@code ByteBuffer}.
+ * @author Zach Kissel
+ */
+public class CborEncoder implements Closeable, Flushable
+{
+  private static final int BUFFER_SIZE = 8192;  // Size of the output buffer.
+
+  // CBOR major types.
+  private static final int UNSIGNED = 0;
+  private static final int NEGATIVE = 1;
+  private static final int TEXT = 3;
+  private static final int ARRAY = 4;
+  private static final int MAP = 5;
+
+  // CBOR simple values and float heads.
+  private static final byte FALSE = (byte) 0xf4;
+  private static final byte TRUE = (byte) 0xf5;
+  private static final byte NULL = (byte) 0xf6;
+  private static final byte FLOAT32 = (byte) 0xfa;
+  private static final byte FLOAT64 = (byte) 0xfb;
+
+  private OutputStream out;   // The output stream, null if writing to a byte buffer.
+  private ByteBuffer dest;    // The output buffer when writing to a byte buffer.
+  private byte[] buf;         // Bytes waiting to be written to the stream.
+  private int count;          // The number of bytes in buf.
+
+  /**
+   * Constructs an encoder that writes to {@code out}.
+   * @param out the stream to write to.
+   */
+  public CborEncoder(OutputStream out)
+  {
+    this.out = out;
+    dest = null;
+    buf = new byte[BUFFER_SIZE];
+    count = 0;
+  }
+
+  /**
+   * Constructs an encoder that writes into {@code dest} from its current
+   * position.
+   * @param dest the buffer to write to.
+   */
+  public CborEncoder(ByteBuffer dest)
+  {
+    out = null;
+    this.dest = dest;
+  }
+
+  /**
+   * CBOR encodes a value.
+   * @param value the value to encode.
+   * @return the encoded value.
+   * @throws IllegalArgumentException if the value can not be encoded.
+   */
+  public static byte[] encode(Object value)
+  {
+    ByteArrayOutputStream res = new ByteArrayOutputStream();
+    CborEncoder enc = new CborEncoder(res);
+
+    try
+    {
+      enc.write(value);
+      enc.flush();
+    }
+    catch (IOException ex)
+    {
+      // A byte array stream never throws.
+      throw new IllegalStateException(ex);
+    }
+    return res.toByteArray();
+  }
+
+  /**
+   * Encodes the JSON form of a serializable object.
+   * @param obj the object to encode.
+   * @throws IOException if the output can not be written.
+   */
+  public void write(JSONSerializable obj) throws IOException
+  {
+    write(obj.toJSONType());
+  }
+
+  /**
+   * Encodes a value. The value may be a {@code JSONObject},
+   * {@code JSONArray}, {@code String}, {@code Boolean}, integral or real
+   * {@code Number}, or null.
+   * @param value the value to encode.
+   * @throws IOException if the output can not be written.
+   * @throws IllegalArgumentException if the value can not be encoded.
+   * @throws java.nio.BufferOverflowException if the destination buffer
+   * is full.
+   */
+  public void write(Object value) throws IOException
+  {
+    if (value == null)
+      put(NULL);
+    else if (value instanceof String)
+      writeString((String) value);
+    else if (value instanceof Boolean)
+      put(((Boolean) value) ? TRUE : FALSE);
+    else if (value instanceof Long || value instanceof Integer ||
+        value instanceof Short || value instanceof Byte)
+      writeLong(((Number) value).longValue());
+    else if (value instanceof Double || value instanceof Float)
+      writeDouble(((Number) value).doubleValue());
+    else if (value instanceof JSONObject)
+    {
+      JSONObject obj = (JSONObject) value;
+      writeHead(MAP, obj.size());
+      for (Map.Entry<String, Object> ent : obj.entrySet())
+      {
+        writeString(ent.getKey());
+        write(ent.getValue());
+      }
+    }
+    else if (value instanceof JSONArray)
+    {
+      JSONArray array = (JSONArray) value;
+      writeHead(ARRAY, array.size());
+      for (Object val : array)
+        write(val);
+    }
+    else
+      throw new IllegalArgumentException("Can not CBOR encode " + value.getClass().getName());
+  }
+
+  /**
+   * Writes the buffered bytes to the stream and flushes it.
+   * @throws IOException if the output can not be written.
+   */
+  public void flush() throws IOException
+  {
+    if (out == null)
+      return;
+    flushBuffer();
+    out.flush();
+  }
+
+  /**
+   * Writes the buffered bytes and closes the stream.
+   * @throws IOException if the output can not be written.
+   */
+  public void close() throws IOException
+  {
+    if (out == null)
+      return;
+    flushBuffer();
+    out.close();
+  }
+
+  /*************************************************
+   *
+   * Private Methods
+   *
+   *************************************************/
+
+  /**
+   * Encodes an integer.
+   * @param n the integer.
+   * @throws IOException if the output can not be written.
+   */
+  private void writeLong(long n) throws IOException
+  {
+    if (n >= 0)
+      writeHead(UNSIGNED, n);
+    else
+      writeHead(NEGATIVE, ~n);    // -1 - n
+  }
+
+  /**
+   * Encodes a real number using the shortest float that holds it exactly.
+   * @param d the number.
+   * @throws IOException if the output can not be written.
+   */
+  private void writeDouble(double d) throws IOException
+  {
+    float f = (float) d;
+
+    if (f == d || Double.isNaN(d))
+    {
+      put(FLOAT32);
+      putInt(Float.floatToIntBits(f));
+    }
+    else
+    {
+      put(FLOAT64);
+      long bits = Double.doubleToLongBits(d);
+      putInt((int) (bits >>> 32));
+      putInt((int) bits);
+    }
+  }
+
+  /**
+   * Encodes a text string.
+   * @param str the string.
+   * @throws IOException if the output can not be written.
+   */
+  private void writeString(String str) throws IOException
+  {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+    writeHead(TEXT, bytes.length);
+    put(bytes);
+  }
+
+  /**
+   * Writes the initial byte of an item and its argument in the fewest
+   * bytes.
+   * @param major the major type.
+   * @param n the argument, treated as unsigned.
+   * @throws IOException if the output can not be written.
+   */
+  private void writeHead(int major, long n) throws IOException
+  {
+    int mt = major << 5;
+
+    if (n >= 0 && n < 24)
+      put((byte) (mt | (int) n));
+    else if (n >= 0 && n < 0x100)
+    {
+      put((byte) (mt | 24));
+      put((byte) n);
+    }
+    else if (n >= 0 && n < 0x10000)
+    {
+      put((byte) (mt | 25));
+      put((byte) (n >>> 8));
+      put((byte) n);
+    }
+    else if (n >= 0 && n < 0x100000000L)
+    {
+      put((byte) (mt | 26));
+      putInt((int) n);
+    }
+    else
+    {
+      put((byte) (mt | 27));
+      putInt((int) (n >>> 32));
+      putInt((int) n);
+    }
+  }
+
+  /**
+   * Writes a 32-bit big endian integer.
+   * @param n the integer.
+   * @throws IOException if the output can not be written.
+   */
+  private void putInt(int n) throws IOException
+  {
+    put((byte) (n >>> 24));
+    put((byte) (n >>> 16));
+    put((byte) (n >>> 8));
+    put((byte) n);
+  }
+
+  /**
+   * Writes a byte.
+   * @param b the byte.
+   * @throws IOException if the output can not be written.
+   */
+  private void put(byte b) throws IOException
+  {
+    if (dest != null)
+    {
+      dest.put(b);
+      return;
+    }
+    if (count == buf.length)
+      flushBuffer();
+    buf[count++] = b;
+  }
+
+  /**
+   * Writes an array of bytes.
+   * @param bytes the bytes.
+   * @throws IOException if the output can not be written.
+   */
+  private void put(byte[] bytes) throws IOException
+  {
+    if (dest != null)
+    {
+      dest.put(bytes);
+      return;
+    }
+    if (bytes.length > buf.length - count)
+    {
+      flushBuffer();
+      if (bytes.length > buf.length)
+      {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buf, count, bytes.length);
+    count += bytes.length;
+  }
+
+  /**
+   * Writes the buffered bytes to the stream.
+   * @throws IOException if the output can not be written.
+   */
+  private void flushBuffer() throws IOException
+  {
+    if (count > 0)
+      out.write(buf, 0, count);
+    count = 0;
+  }
+}
@@ -17,6 +17,7 @@
 package merrimackutil.json;
 
 import merrimackutil.json.types.JSONType;
+import java.io.IOException;
 import java.io.InvalidObjectException;
 
 /**
@@ -34,6 +35,18 @@ import java.io.InvalidObjectException;
     return toJSONType().toJSON();
    }
 
+   /**
+    * Writes the JSON form of the object to {@code out}. Classes that can
+    * write their fields directly should override this to avoid building
+    * the JSON type first.
+    * @param out the JSON writer to write to.
+    * @throws IOException if the output can not be written.
+    */
+   default public void writeTo(JsonWriter out) throws IOException
+   {
+     out.value(toJSONType());
+   }
+
    /**
     * Coverts json data to an object of this type.
     * @param obj a JSON type to deserialize.
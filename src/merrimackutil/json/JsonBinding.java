@@ -0,0 +1,447 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import merrimackutil.json.lexer.TokenType;
+
+/**
+ * A binding between a class and its JSON object form. A binding is built
+ * once per class from the getters and setters of its fields, and is then
+ * used to read objects of the class straight from a {@code JsonReader}
+ * and to write them straight to JSON, without building a
+ * {@code JSONObject} in between. No reflection is used. For example:
+ * <pre>
+ *   JsonBinding&lt;Point&gt; binding = JsonBinding.builder("Point", Point::new)
+ *       .intField("x", Point::getX, Point::setX)
+ *       .intField("y", Point::getY, Point::setY)
+ *       .build();
+ * </pre>
+ * Every field of the binding must be present when an object is read.
+ * Members that are not fields of the binding are skipped.
+ * @param <T> the class that is bound.
+ * @author Zach Kissel
+ */
+public final class JsonBinding<T>
+{
+  private String typeName;                      // The name of the type for errors.
+  private Supplier<T> factory;                  // Creates empty objects.
+  private Field<T>[] fields;                    // The fields in the order they are written.
+  private HashMap<String, Integer> fieldIndex;  // The index of each field by name.
+
+  /**
+   * Reads the value of a field into an object.
+   * @param <T> the class that is bound.
+   */
+  private interface FieldReader<T>
+  {
+    void read(JsonReader in, T obj) throws InvalidJSONException, InvalidObjectException;
+  }
+
+  /**
+   * Writes the value of a field of an object.
+   * @param <T> the class that is bound.
+   */
+  private interface FieldWriter<T>
+  {
+    void write(T obj, JsonWriter out) throws IOException;
+  }
+
+  /**
+   * A single field of the binding.
+   * @param <T> the class that is bound.
+   */
+  private static class Field<T>
+  {
+    String name;                // The name of the member.
+    boolean scalar;             // True if the member is a single token.
+    FieldReader<T> reader;      // Reads the member into an object.
+    FieldWriter<T> writer;      // Writes the member of an object.
+
+    Field(String name, boolean scalar, FieldReader<T> reader, FieldWriter<T> writer)
+    {
+      this.name = name;
+      this.scalar = scalar;
+      this.reader = reader;
+      this.writer = writer;
+    }
+  }
+
+  /**
+   * Constructs a binding from the fields of a builder.
+   * @param builder the builder holding the fields.
+   */
+  private JsonBinding(Builder<T> builder)
+  {
+    // Generic arrays can not be created directly; every element is a Field<T>.
+    @SuppressWarnings("unchecked")
+    Field<T>[] arr = (Field<T>[]) new Field<?>[builder.fields.size()];
+
+    typeName = builder.typeName;
+    factory = builder.factory;
+    fields = builder.fields.toArray(arr);
+    fieldIndex = new HashMap<>();
+    for (int i = 0; i < fields.length; i++)
+      fieldIndex.put(fields[i].name, i);
+  }
+
+  /**
+   * Starts building a binding.
+   * @param <T> the class to bind.
+   * @param typeName the name of the type used in error messages.
+   * @param factory creates empty objects of the class.
+   * @return a builder for the binding.
+   */
+  public static <T> Builder<T> builder(String typeName, Supplier<T> factory)
+  {
+    return new Builder<>(typeName, factory);
+  }
+
+  /**
+   * Reads the next object from {@code in} into a new object.
+   * @param in the reader positioned at the object.
+   * @return the object read.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws InvalidObjectException if the JSON does not match the binding.
+   */
+  public T read(JsonReader in) throws InvalidJSONException, InvalidObjectException
+  {
+    T obj = factory.get();
+
+    readInto(in, obj);
+    return obj;
+  }
+
+  /**
+   * Reads the next object from {@code in} into the object {@code obj}.
+   * @param in the reader positioned at the object.
+   * @param obj the object to set the fields of.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws InvalidObjectException if the JSON does not match the binding.
+   */
+  public void readInto(JsonReader in, T obj) throws InvalidJSONException, InvalidObjectException
+  {
+    boolean[] seen = new boolean[fields.length];
+    int found = 0;
+
+    if (in.peek() != TokenType.LBRACE)
+      throw new InvalidObjectException(typeName + " -- expected Object.");
+
+    in.beginObject();
+    while (in.hasNext())
+    {
+      Integer idx = fieldIndex.get(in.nextName());
+      if (idx == null)
+      {
+        in.skipValue();
+        continue;
+      }
+
+      readField(in, fields[idx], obj);
+      if (!seen[idx])
+      {
+        seen[idx] = true;
+        found++;
+      }
+    }
+    in.endObject();
+
+    if (found != fields.length)
+    {
+      String missingKeys = "";
+      for (int i = 0; i < fields.length; i++)
+        if (!seen[i])
+          missingKeys += fields[i].name + ", ";
+      throw new InvalidObjectException("Error object is missing required keys: " +
+          missingKeys.substring(0, missingKeys.length() - 2));
+    }
+  }
+
+  /**
+   * Converts {@code obj} to a JSON string suitable for storing in a file.
+   * @param obj the object to convert.
+   * @return the JSON form of the object.
+   */
+  public String toJSON(T obj)
+  {
+    StringBuilder res = new StringBuilder();
+    JsonWriter out = new JsonWriter(res);
+
+    try
+    {
+      write(obj, out);
+      out.flush();
+    }
+    catch (IOException ex)
+    {
+      // A string builder never throws.
+      throw new UncheckedIOException(ex);
+    }
+    return res.toString();
+  }
+
+  /**
+   * Writes the JSON form of {@code obj} to {@code out}.
+   * @param obj the object to write.
+   * @param out the JSON writer to write to.
+   * @throws IOException if the output can not be written.
+   */
+  public void write(T obj, JsonWriter out) throws IOException
+  {
+    out.beginObject();
+    for (Field<T> field : fields)
+    {
+      out.name(field.name);
+      field.writer.write(obj, out);
+    }
+    out.endObject();
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Reads the value of {@code field} from {@code in} into {@code obj}.
+   * A value that is valid JSON but of the wrong type for the field, such
+   * as a string for an int field, does not match the binding.
+   * @param in the reader positioned at the value.
+   * @param field the field to read.
+   * @param obj the object to set the field of.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws InvalidObjectException if the value does not match the field.
+   */
+  private void readField(JsonReader in, Field<T> field, T obj)
+      throws InvalidJSONException, InvalidObjectException
+  {
+    // Any error in the token itself is reported here, so a scalar
+    // reader can only fail because the token has the wrong type.
+    in.peek();
+    try
+    {
+      field.reader.read(in, obj);
+    }
+    catch (InvalidJSONException ex)
+    {
+      if (!field.scalar)
+        throw ex;
+      throw new InvalidObjectException(typeName + " -- invalid value for " + field.name +
+          ". " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Builds a binding one field at a time.
+   * @param <T> the class to bind.
+   */
+  public static final class Builder<T>
+  {
+    private String typeName;                // The name of the type for errors.
+    private Supplier<T> factory;            // Creates empty objects.
+    private ArrayList<Field<T>> fields;     // The fields added so far.
+
+    /**
+     * Constructs an empty builder.
+     * @param typeName the name of the type used in error messages.
+     * @param factory creates empty objects of the class.
+     */
+    private Builder(String typeName, Supplier<T> factory)
+    {
+      this.typeName = typeName;
+      this.factory = factory;
+      fields = new ArrayList<>();
+    }
+
+    /**
+     * Adds a string field. A JSON null reads as a null string.
+     * @param name the name of the member.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public Builder<T> stringField(String name, Function<T, String> get, BiConsumer<T, String> set)
+    {
+      return add(name, true,
+          (in, obj) -> {
+            if (in.peek() == TokenType.NULL)
+            {
+              in.nextNull();
+              set.accept(obj, null);
+            }
+            else
+              set.accept(obj, in.nextString());
+          },
+          (obj, out) -> out.value(get.apply(obj)));
+    }
+
+    /**
+     * Adds an int field.
+     * @param name the name of the member.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public Builder<T> intField(String name, ToIntFunction<T> get, ObjIntConsumer<T> set)
+    {
+      return add(name, true,
+          (in, obj) -> set.accept(obj, in.nextInt()),
+          (obj, out) -> out.value(get.applyAsInt(obj)));
+    }
+
+    /**
+     * Adds a long field.
+     * @param name the name of the member.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public Builder<T> longField(String name, ToLongFunction<T> get, ObjLongConsumer<T> set)
+    {
+      return add(name, true,
+          (in, obj) -> set.accept(obj, in.nextLong()),
+          (obj, out) -> out.value(get.applyAsLong(obj)));
+    }
+
+    /**
+     * Adds a double field.
+     * @param name the name of the member.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public Builder<T> doubleField(String name, ToDoubleFunction<T> get, ObjDoubleConsumer<T> set)
+    {
+      return add(name, true,
+          (in, obj) -> set.accept(obj, in.nextDouble()),
+          (obj, out) -> out.value(get.applyAsDouble(obj)));
+    }
+
+    /**
+     * Adds a boolean field.
+     * @param name the name of the member.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public Builder<T> booleanField(String name, Function<T, Boolean> get, BiConsumer<T, Boolean> set)
+    {
+      return add(name, true,
+          (in, obj) -> set.accept(obj, in.nextBoolean()),
+          (obj, out) -> out.value(get.apply(obj).booleanValue()));
+    }
+
+    /**
+     * Adds a field holding an object of another bound class. A JSON null
+     * reads as a null object.
+     * @param <V> the class of the field.
+     * @param name the name of the member.
+     * @param binding the binding of the class of the field.
+     * @param get gets the field of an object.
+     * @param set sets the field of an object.
+     * @return this builder.
+     */
+    public <V> Builder<T> objectField(String name, JsonBinding<V> binding, Function<T, V> get,
+        BiConsumer<T, V> set)
+    {
+      return add(name, false,
+          (in, obj) -> {
+            if (in.peek() == TokenType.NULL)
+            {
+              in.nextNull();
+              set.accept(obj, null);
+            }
+            else
+              set.accept(obj, binding.read(in));
+          },
+          (obj, out) -> {
+            V val = get.apply(obj);
+            if (val == null)
+              out.nullValue();
+            else
+              binding.write(val, out);
+          });
+    }
+
+    /**
+     * Adds a field holding an array of objects of another bound class.
+     * Each element read is handed to {@code add}.
+     * @param <V> the class of the elements.
+     * @param name the name of the member.
+     * @param binding the binding of the class of the elements.
+     * @param get gets the elements of an object.
+     * @param add adds an element to an object.
+     * @return this builder.
+     */
+    public <V> Builder<T> listField(String name, JsonBinding<V> binding,
+        Function<T, ? extends Iterable<V>> get, BiConsumer<T, V> add)
+    {
+      return add(name, false,
+          (in, obj) -> {
+            if (in.peek() != TokenType.LBRACKET)
+              throw new InvalidObjectException(typeName + " -- expected Array for " + name + ".");
+            in.beginArray();
+            while (in.hasNext())
+              add.accept(obj, binding.read(in));
+            in.endArray();
+          },
+          (obj, out) -> {
+            out.beginArray();
+            for (V val : get.apply(obj))
+              binding.write(val, out);
+            out.endArray();
+          });
+    }
+
+    /**
+     * Builds the binding.
+     * @return the binding.
+     */
+    public JsonBinding<T> build()
+    {
+      return new JsonBinding<>(this);
+    }
+
+    /**
+     * Adds a field.
+     * @param name the name of the member.
+     * @param scalar true if the member is a single token, such as a string
+     * or a number.
+     * @param reader reads the member into an object.
+     * @param writer writes the member of an object.
+     * @return this builder.
+     */
+    private Builder<T> add(String name, boolean scalar, FieldReader<T> reader,
+        FieldWriter<T> writer)
+    {
+      fields.add(new Field<>(name, scalar, reader, writer));
+      return this;
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import merrimackutil.json.types.JSONObject;
+
+/**
+ * A cache of the objects stored in JSON files, such as configuration
+ * files that are looked up far more often than they change. Each object
+ * is parsed once and frozen, so the same instance can be handed to any
+ * number of threads.
+ * <p>
+ * Every lookup checks the modification time and size of the file. If
+ * either has changed, the file is parsed again in the background and the
+ * previous object is returned until the new one is ready. A file that
+ * fails to parse leaves the previous object in place until the file
+ * changes again.
+ * @author Zach Kissel
+ */
+public class JsonFileCache
+{
+  private ConcurrentHashMap<Path, Entry> entries;   // The cached files.
+  private Executor executor;                        // Runs the background reloads.
+
+  /**
+   * A parsed file and the attributes it had when it was read.
+   */
+  private static class Entry
+  {
+    JSONObject value;         // The frozen object.
+    FileTime modified;        // The modification time of the file.
+    long size;                // The size of the file.
+    AtomicBoolean reloading;  // True while a reload is running.
+
+    Entry(JSONObject value, BasicFileAttributes attrs)
+    {
+      this.value = value;
+      modified = attrs.lastModifiedTime();
+      size = attrs.size();
+      reloading = new AtomicBoolean(false);
+    }
+
+    boolean matches(BasicFileAttributes attrs)
+    {
+      return size == attrs.size() && modified.equals(attrs.lastModifiedTime());
+    }
+  }
+
+  /**
+   * Constructs a cache that reloads files on the common fork/join pool.
+   */
+  public JsonFileCache()
+  {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a cache that reloads files with {@code executor}.
+   * @param executor the executor to reload changed files with.
+   */
+  public JsonFileCache(Executor executor)
+  {
+    this.executor = executor;
+    entries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Gets the object stored in the UTF-8 file at {@code path}. The first
+   * lookup of a file parses it before returning. Later lookups return the
+   * cached object, starting a reload if the file has changed. If the
+   * executor rejects the reload, the cached object is returned and the
+   * reload is tried again on the next lookup.
+   * @param path the path of the file.
+   * @return the frozen object stored in the file.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the JSON of a file not yet cached is
+   * invalid.
+   */
+  public JSONObject get(Path path) throws IOException, InvalidJSONException
+  {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+    Entry cur = entries.get(key);
+
+    if (cur == null)
+    {
+      Entry loaded = new Entry(JsonIO.readObject(key).freeze(), attrs);
+      cur = entries.putIfAbsent(key, loaded);
+      return (cur == null) ? loaded.value : cur.value;
+    }
+
+    if (!cur.matches(attrs) && cur.reloading.compareAndSet(false, true))
+    {
+      Entry old = cur;
+      try
+      {
+        executor.execute(() -> reload(key, old));
+      }
+      catch (RejectedExecutionException ex)
+      {
+        old.reloading.set(false);
+      }
+    }
+    return cur.value;
+  }
+
+  /**
+   * Gets the object stored in the UTF-8 file {@code file}.
+   * @param file the file.
+   * @return the frozen object stored in the file.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the JSON of a file not yet cached is
+   * invalid.
+   * @see #get(Path)
+   */
+  public JSONObject get(File file) throws IOException, InvalidJSONException
+  {
+    return get(file.toPath());
+  }
+
+  /**
+   * Removes the file at {@code path} from the cache, so the next lookup
+   * parses it again.
+   * @param path the path of the file.
+   */
+  public void invalidate(Path path)
+  {
+    entries.remove(path.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Removes every file from the cache.
+   */
+  public void clear()
+  {
+    entries.clear();
+  }
+
+  /************ Private Methods ************/
+
+  /**
+   * Parses a changed file again and replaces its entry. If the file can
+   * not be parsed, the old object is kept but the new attributes are
+   * recorded so the file is not parsed again until it changes. If the file
+   * can no longer be read, it is dropped from the cache. However the
+   * reload ends, the old entry is marked as no longer reloading, so a
+   * failed reload is tried again.
+   * @param key the normalized path of the file.
+   * @param old the entry being replaced.
+   */
+  private void reload(Path key, Entry old)
+  {
+    try
+    {
+      BasicFileAttributes attrs;
+      try
+      {
+        attrs = Files.readAttributes(key, BasicFileAttributes.class);
+      }
+      catch (IOException ex)
+      {
+        entries.remove(key, old);
+        return;
+      }
+
+      JSONObject value;
+      try
+      {
+        value = JsonIO.readObject(key).freeze();
+      }
+      catch (IOException | InvalidJSONException ex)
+      {
+        value = old.value;
+      }
+      entries.replace(key, old, new Entry(value, attrs));
+    }
+    finally
+    {
+      old.reloading.set(false);
+    }
+  }
+}
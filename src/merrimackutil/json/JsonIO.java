@@ -16,13 +16,43 @@
  */
 package merrimackutil.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileReader;
 import java.io.PrintWriter;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import merrimackutil.json.types.JSONObject;
 import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONType;
+import merrimackutil.json.types.LazyJSONObject;
 import merrimackutil.json.parser.JSONParser;
-import merrimackutil.json.parser.ast.SyntaxTree;
+import merrimackutil.json.parser.ParallelArrayParser;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.lexer.StructuralIndex;
 
 /**
  * This class provides convience methods for reading and writing JSON
@@ -31,6 +61,16 @@ import merrimackutil.json.parser.ast.SyntaxTree;
  */
 public class JsonIO
 {
+  private static final int POOLED_LIMIT = 65536;  // Longest string read with a pooled parser.
+
+  // Each thread reuses one parser, and so one lexer and window, for the
+  // strings and files it reads. Lines are only counted to report errors.
+  private static final ThreadLocal<JSONParser> PARSERS = ThreadLocal.withInitial(() -> {
+    Lexer lex = new Lexer("");
+    lex.setLineTracking(false);
+    return new JSONParser(lex);
+  });
+
   /**
    * Reads the object stored in file {@code objFile}
    * @param objFile the file to read the object from.
@@ -40,14 +80,53 @@ public class JsonIO
    */
   public static JSONObject readObject(File objFile) throws FileNotFoundException, InvalidJSONException
   {
-    JSONParser parser = new JSONParser(objFile);
+    JSONParser parser = PARSERS.get();
+    JSONType res;
 
-    SyntaxTree ast = parser.parse();
+    parser.reset(new FileReader(objFile));
+    try
+    {
+      res = parser.parseDirect();
+    }
+    finally
+    {
+      parser.close();
+    }
 
     if (parser.hasError())
       throw new InvalidJSONException("readObject failed.\n" + parser.getErrorLog().trim());
       
-    return (JSONObject) ast.evaluate();
+    return (JSONObject) res;
+  }
+
+  /**
+   * Reads the object stored in the UTF-8 file at {@code objPath}. The
+   * file is memory mapped, so repeated reads are served from the page
+   * cache without copying the file through a reader.
+   * @param objPath the path of the file to read the object from.
+   * @return a JSONObject or null in the case of error.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the JSON is invalid.
+   */
+  public static JSONObject readObject(Path objPath) throws IOException, InvalidJSONException
+  {
+    Lexer lex = openLexer(objPath);
+    JSONParser parser = new JSONParser(lex);
+    JSONType res;
+
+    try
+    {
+      res = parser.parseDirect();
+    }
+    finally
+    {
+      lex.close();
+    }
+
+    if (parser.hasError())
+      throw new InvalidJSONException("readObject failed.\n" + parser.getErrorLog().trim());
+
+    return (JSONObject) res;
   }
 
   /**
@@ -58,13 +137,13 @@ public class JsonIO
    */
   public static JSONObject readObject(String objString) throws InvalidJSONException
   {
-    JSONParser parser = new JSONParser(objString);
+    JSONParser parser = stringParser(objString);
 
-    SyntaxTree ast = parser.parse();
+    JSONType res = parser.parseDirect();
     if (parser.hasError())
       throw new InvalidJSONException("readObject failed.\n" + parser.getErrorLog().trim());
       
-    return (JSONObject) ast.evaluate();
+    return (JSONObject) res;
   }
 
   /**
@@ -76,13 +155,80 @@ public class JsonIO
    */
   public static JSONArray readArray(File arrayFile) throws FileNotFoundException, InvalidJSONException
   {
-    JSONParser parser = new JSONParser(arrayFile);
+    JSONParser parser = PARSERS.get();
+    JSONType res;
 
-    SyntaxTree ast = parser.parse();
+    parser.reset(new FileReader(arrayFile));
+    try
+    {
+      res = parser.parseDirect();
+    }
+    finally
+    {
+      parser.close();
+    }
     if (parser.hasError())
       throw new InvalidJSONException("readArray failed.\n" + parser.getErrorLog().trim());
       
-    return (JSONArray) ast.evaluate();
+    return (JSONArray) res;
+  }
+
+  /**
+   * Reads the array stored in the UTF-8 file at {@code arrayPath}. The
+   * file is memory mapped, so repeated reads are served from the page
+   * cache without copying the file through a reader.
+   * @param arrayPath the path of the file to read the array from.
+   * @return a JSONArray or null in the case of error.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the JSON is invalid.
+   */
+  public static JSONArray readArray(Path arrayPath) throws IOException, InvalidJSONException
+  {
+    Lexer lex = openLexer(arrayPath);
+    JSONParser parser = new JSONParser(lex);
+    JSONType res;
+
+    try
+    {
+      res = parser.parseDirect();
+    }
+    finally
+    {
+      lex.close();
+    }
+
+    if (parser.hasError())
+      throw new InvalidJSONException("readArray failed.\n" + parser.getErrorLog().trim());
+
+    return (JSONArray) res;
+  }
+
+  /**
+   * Reads the array stored in the UTF-8 file at {@code arrayPath}, parsing
+   * its elements in parallel on the common fork/join pool. This is meant
+   * for files that are one large array of independent values.
+   * @param arrayPath the path of the file to read the array from.
+   * @return a JSONArray.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the JSON is invalid.
+   */
+  public static JSONArray readArrayParallel(Path arrayPath) throws IOException, InvalidJSONException
+  {
+    CharBuffer chars = readChars(arrayPath);
+
+    return new ParallelArrayParser().parse(chars.array(), 0, chars.position());
+  }
+
+  /**
+   * Builds the JSON array from string {@code arrayString}, parsing its
+   * elements in parallel on the common fork/join pool.
+   * @param arrayString the JSON string to read the array from.
+   * @return a JSONArray.
+   * @throws InvalidJSONException if the JSON is invalid.
+   */
+  public static JSONArray readArrayParallel(String arrayString) throws InvalidJSONException
+  {
+    return new ParallelArrayParser().parse(arrayString.toCharArray());
   }
 
   /**
@@ -93,14 +239,78 @@ public class JsonIO
    */
   public static JSONArray readArray(String arrayString) throws InvalidJSONException
   {
-    JSONParser parser = new JSONParser(arrayString);
+    JSONParser parser = stringParser(arrayString);
 
-    SyntaxTree ast = parser.parse();
+    JSONType res = parser.parseDirect();
 
     if (parser.hasError())
       throw new InvalidJSONException("readObject failed.\n" + parser.getErrorLog().trim());
       
-    return (JSONArray) ast.evaluate();
+    return (JSONArray) res;
+  }
+
+  /**
+   * Reads the JSON object from string {@code objString} lazily. Only the
+   * structure of the document is indexed; the values are parsed when they
+   * are read from the returned object.
+   * @param objString the JSON string to read the object from.
+   * @return a lazy view of the object.
+   * @throws InvalidJSONException if the structure of the JSON is invalid.
+   */
+  public static LazyJSONObject readLazyObject(String objString) throws InvalidJSONException
+  {
+    return LazyJSONObject.of(new StructuralIndex(objString.toCharArray()));
+  }
+
+  /**
+   * Reads the object stored in the UTF-8 file at {@code objPath} lazily.
+   * Only the structure of the document is indexed; the values are parsed
+   * when they are read from the returned object.
+   * @param objPath the path of the file to read the object from.
+   * @return a lazy view of the object.
+   * @throws IOException if the file can not be read.
+   * @throws InvalidJSONException if the structure of the JSON is invalid.
+   */
+  public static LazyJSONObject readLazyObject(Path objPath) throws IOException, InvalidJSONException
+  {
+    return readLazyObject(Files.readString(objPath, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Selects the values matching the path expression {@code path} from
+   * the document in file {@code jsonFile}. The document is read as a
+   * stream, so only the matching values are built. See {@code JsonPath}
+   * for the path syntax.
+   * @param jsonFile the file to read the document from.
+   * @param path the path expression.
+   * @return the matching values in document order.
+   * @throws FileNotFoundException if the file is not found.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  public static JSONArray select(File jsonFile, String path) throws FileNotFoundException, InvalidJSONException
+  {
+    JsonPath compiled = new JsonPath(path);
+
+    try (JsonReader reader = new JsonReader(jsonFile))
+    {
+      return compiled.select(reader);
+    }
+  }
+
+  /**
+   * Selects the values matching the path expression {@code path} from
+   * the document in string {@code jsonString}. See {@code JsonPath} for
+   * the path syntax.
+   * @param jsonString the JSON string to read the document from.
+   * @param path the path expression.
+   * @return the matching values in document order.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  public static JSONArray select(String jsonString, String path) throws InvalidJSONException
+  {
+    return new JsonPath(path).select(new JsonReader(jsonString));
   }
 
   /**
@@ -114,7 +324,7 @@ public class JsonIO
      FileNotFoundException
   {
     PrintWriter out = new PrintWriter(jsonFile);
-    out.println(obj.serialize());
+    writeSerializedObject(obj, out);
     out.close();
   }
 
@@ -127,7 +337,19 @@ public class JsonIO
    */
   public static void writeSerializedObject(JSONSerializable obj, PrintWriter out)
   {
-    out.println(obj.serialize());
+    JsonWriter json = new JsonWriter(out);
+
+    try
+    {
+      obj.writeTo(json);
+      json.flush();
+    }
+    catch (IOException ex)
+    {
+      // A print writer records its errors instead of throwing.
+      throw new UncheckedIOException(ex);
+    }
+    out.println();
   }
 
   /**
@@ -140,7 +362,353 @@ public class JsonIO
    */
   public static void writeFormattedObject(JSONSerializable obj, File jsonFile) throws FileNotFoundException {
     PrintWriter out = new PrintWriter(jsonFile);
-    out.println(obj.toJSONType().getFormattedJSON());
+    JsonWriter json = new JsonWriter(out).setIndent("   ");
+
+    try
+    {
+      obj.writeTo(json);
+      json.newLine();
+      json.flush();
+    }
+    catch (IOException ex)
+    {
+      // A print writer records its errors instead of throwing.
+      throw new UncheckedIOException(ex);
+    }
+    out.println();
     out.close();
   }
+
+  /**
+   * Reads the object stored in the UTF-8 file at {@code objPath} without
+   * blocking the calling thread, parsing it on the common fork/join pool.
+   * @param objPath the path of the file to read the object from.
+   * @return a future completed with the object, or exceptionally with an
+   * {@code IOException} or {@code InvalidJSONException}.
+   */
+  public static CompletableFuture<JSONObject> readObjectAsync(Path objPath)
+  {
+    return readObjectAsync(objPath, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Reads the object stored in the UTF-8 file at {@code objPath} without
+   * blocking the calling thread. The file is read with an
+   * {@code AsynchronousFileChannel} and then parsed on {@code executor},
+   * which may run virtual threads.
+   * @param objPath the path of the file to read the object from.
+   * @param executor the executor to parse the object on.
+   * @return a future completed with the object, or exceptionally with an
+   * {@code IOException} or {@code InvalidJSONException}.
+   */
+  public static CompletableFuture<JSONObject> readObjectAsync(Path objPath, Executor executor)
+  {
+    return readFileAsync(objPath).thenApplyAsync(bytes -> {
+      JSONParser parser = new JSONParser(new Lexer(bytes));
+      JSONType res = parser.parseDirect();
+
+      if (parser.hasError())
+        throw new CompletionException(new InvalidJSONException("readObject failed.\n" +
+            parser.getErrorLog().trim()));
+      if (!(res instanceof JSONObject))
+        throw new CompletionException(new InvalidJSONException("readObject failed, object expected."));
+      return (JSONObject) res;
+    }, executor);
+  }
+
+  /**
+   * Writes the serialized form of {@code obj} to the file at
+   * {@code jsonFile} without blocking the calling thread, serializing it
+   * on the common fork/join pool.
+   * @param obj the object to write.
+   * @param jsonFile the path of the file to write, which is replaced.
+   * @return a future completed when the file has been written, or
+   * exceptionally with an {@code IOException}.
+   */
+  public static CompletableFuture<Void> writeAsync(JSONSerializable obj, Path jsonFile)
+  {
+    return writeAsync(obj, jsonFile, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Writes the serialized form of {@code obj} to the file at
+   * {@code jsonFile} without blocking the calling thread. The object is
+   * serialized on {@code executor}, which may run virtual threads, and the
+   * result is written with an {@code AsynchronousFileChannel}. The file
+   * holds the same text as {@link #writeSerializedObject(JSONSerializable, File)}
+   * writes.
+   * @param obj the object to write.
+   * @param jsonFile the path of the file to write, which is replaced.
+   * @param executor the executor to serialize the object on.
+   * @return a future completed when the file has been written, or
+   * exceptionally with an {@code IOException}.
+   */
+  public static CompletableFuture<Void> writeAsync(JSONSerializable obj, Path jsonFile,
+      Executor executor)
+  {
+    return CompletableFuture.supplyAsync(() -> {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      JsonWriter out = new JsonWriter(bytes);
+
+      try
+      {
+        obj.writeTo(out);
+        out.flush();
+        bytes.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+      }
+      catch (IOException ex)
+      {
+        // A byte array stream never throws.
+        throw new UncheckedIOException(ex);
+      }
+      return ByteBuffer.wrap(bytes.toByteArray());
+    }, executor).thenCompose(buf -> writeFileAsync(jsonFile, buf));
+  }
+
+  /**
+   * Reads a file of JSON Lines (NDJSON), one JSON object per line. The
+   * objects are parsed one at a time as the stream is consumed, using a
+   * single lexer and buffer for the whole file. An object that starts on
+   * the line the previous one ended on is an error. The stream should be
+   * closed when it is no longer needed. Invalid JSON is reported by an
+   * {@code IllegalStateException} whose cause is the
+   * {@code InvalidJSONException}.
+   * @param path the path of the file to read.
+   * @return a stream of the objects in the file.
+   * @throws IOException if the file can not be opened.
+   */
+  public static Stream<JSONObject> readLines(Path path) throws IOException
+  {
+    JsonReader reader = new JsonReader(openLexer(path));
+    reader.setMultiValue(true);
+
+    Iterator<JSONObject> iter = new Iterator<JSONObject>()
+    {
+      private long lastLine = 0;     // The line the previous object ended on.
+
+      public boolean hasNext()
+      {
+        try
+        {
+          return reader.hasNext();
+        }
+        catch (InvalidJSONException ex)
+        {
+          throw new IllegalStateException("readLines failed.\n" + ex.getMessage(), ex);
+        }
+      }
+
+      public JSONObject next()
+      {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        try
+        {
+          if (reader.getLineNumber() <= lastLine)
+            throw new InvalidJSONException("Line " + lastLine + " holds more than one value.");
+          JSONObject obj = reader.nextObject();
+          lastLine = reader.getLineNumber();
+          return obj;
+        }
+        catch (InvalidJSONException ex)
+        {
+          throw new IllegalStateException("readLines failed.\n" + ex.getMessage(), ex);
+        }
+      }
+    };
+
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter,
+        Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(reader::close);
+  }
+
+  /**
+   * Writes the objects in {@code objs} to {@code path} as JSON Lines
+   * (NDJSON), one serialized object per line.
+   * @param objs the objects to write.
+   * @param path the path of the file to write.
+   * @throws IOException if the file can not be written.
+   */
+  public static void writeLines(Iterable<? extends JSONSerializable> objs, Path path) throws IOException
+  {
+    try (JsonLinesWriter out = new JsonLinesWriter(path, false))
+    {
+      for (JSONSerializable obj : objs)
+        out.write(obj);
+    }
+  }
+
+  /**
+   * Gets a parser for the string {@code str}. This thread's pooled parser
+   * is reset onto the string unless the string is long, in which case a
+   * new parser is built so the pool does not hold on to a large window.
+   * @param str the JSON to parse.
+   * @return a parser positioned at the start of the string.
+   */
+  private static JSONParser stringParser(String str)
+  {
+    if (str.length() > POOLED_LIMIT)
+      return new JSONParser(str);
+
+    JSONParser parser = PARSERS.get();
+    parser.reset(str);
+    return parser;
+  }
+
+  /**
+   * Reads the whole file at {@code path} with an asynchronous channel.
+   * @param path the path of the file.
+   * @return a future completed with the contents of the file, ready to
+   * be read.
+   */
+  private static CompletableFuture<ByteBuffer> readFileAsync(Path path)
+  {
+    CompletableFuture<ByteBuffer> res = new CompletableFuture<>();
+
+    try
+    {
+      AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+      {
+        channel.close();
+        throw new IOException("File too large to read: " + path);
+      }
+
+      ByteBuffer buf = ByteBuffer.allocate((int) size);
+      channel.read(buf, 0, null, new CompletionHandler<Integer, Void>()
+      {
+        public void completed(Integer n, Void unused)
+        {
+          if (n >= 0 && buf.hasRemaining())
+          {
+            channel.read(buf, buf.position(), null, this);
+            return;
+          }
+          closeChannel(channel);
+          res.complete(buf.flip());
+        }
+
+        public void failed(Throwable ex, Void unused)
+        {
+          closeChannel(channel);
+          res.completeExceptionally(ex);
+        }
+      });
+    }
+    catch (IOException ex)
+    {
+      res.completeExceptionally(ex);
+    }
+    return res;
+  }
+
+  /**
+   * Replaces the file at {@code path} with the bytes in {@code buf}
+   * using an asynchronous channel.
+   * @param path the path of the file.
+   * @param buf the bytes to write.
+   * @return a future completed when every byte has been written.
+   */
+  private static CompletableFuture<Void> writeFileAsync(Path path, ByteBuffer buf)
+  {
+    CompletableFuture<Void> res = new CompletableFuture<>();
+
+    try
+    {
+      AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+      channel.write(buf, 0, null, new CompletionHandler<Integer, Void>()
+      {
+        public void completed(Integer n, Void unused)
+        {
+          if (buf.hasRemaining())
+          {
+            channel.write(buf, buf.position(), null, this);
+            return;
+          }
+          closeChannel(channel);
+          res.complete(null);
+        }
+
+        public void failed(Throwable ex, Void unused)
+        {
+          closeChannel(channel);
+          res.completeExceptionally(ex);
+        }
+      });
+    }
+    catch (IOException ex)
+    {
+      res.completeExceptionally(ex);
+    }
+    return res;
+  }
+
+  /**
+   * Closes an asynchronous channel, reporting rather than throwing any
+   * error.
+   * @param channel the channel to close.
+   */
+  private static void closeChannel(AsynchronousFileChannel channel)
+  {
+    try
+    {
+      channel.close();
+    }
+    catch (IOException ioe)
+    {
+      System.err.println("Internal error (closeChannel()): " + ioe);
+    }
+  }
+
+  /**
+   * Decodes the UTF-8 file at {@code path} straight from a memory mapping
+   * into a character array, without building a string first.
+   * @param path the path of the file to read.
+   * @return a buffer whose array holds the characters up to its position.
+   * @throws IOException if the file can not be read or is not valid UTF-8.
+   */
+  private static CharBuffer readChars(Path path) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+        throw new IOException("File too large to read into memory: " + path);
+
+      // UTF-8 never decodes to more chars than it has bytes.
+      CharBuffer chars = CharBuffer.allocate((int) size);
+      CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+      CoderResult res = decoder.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+          chars, true);
+      if (!res.isUnderflow())
+        res.throwException();
+      res = decoder.flush(chars);
+      if (!res.isUnderflow())
+        res.throwException();
+      return chars;
+    }
+  }
+
+  /**
+   * Builds a lexer over the UTF-8 file at {@code path}. The file is
+   * memory mapped unless it is too large to map in one piece, in which
+   * case it is read through a decoding reader.
+   * @param path the path of the file to read.
+   * @return a lexer for the file.
+   * @throws IOException if the file can not be opened.
+   */
+  private static Lexer openLexer(Path path) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      long size = channel.size();
+
+      if (size <= Integer.MAX_VALUE)
+        return new Lexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+    return new Lexer(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import merrimackutil.json.types.JSONType;
+
+/**
+ * A buffered writer for JSON Lines (NDJSON) output. Each value written
+ * is serialized on a single line terminated by a newline.
+ * @author Zach Kissel
+ */
+public class JsonLinesWriter implements Closeable, Flushable
+{
+  private JsonWriter out;   // The buffered output.
+
+  /**
+   * Constructs a new writer for the file at {@code path}.
+   * @param path the path of the file to write.
+   * @param append if true, lines are added to the end of an existing file;
+   * otherwise, the file is truncated.
+   * @throws IOException if the file can not be opened.
+   */
+  public JsonLinesWriter(Path path, boolean append) throws IOException
+  {
+    out = new JsonWriter(Files.newOutputStream(path,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Constructs a new writer that writes to {@code out}.
+   * @param out the writer to write the lines to.
+   */
+  public JsonLinesWriter(Writer out)
+  {
+    this.out = new JsonWriter(out);
+  }
+
+  /**
+   * Writes {@code obj} as a single line.
+   * @param obj a JSON serializable object.
+   * @throws IOException if the line can not be written.
+   */
+  public void write(JSONSerializable obj) throws IOException
+  {
+    obj.writeTo(out);
+    out.newLine();
+  }
+
+  /**
+   * Writes {@code val} as a single line.
+   * @param val the object or array to write.
+   * @throws IOException if the line can not be written.
+   */
+  public void write(JSONType val) throws IOException
+  {
+    out.value(val);
+    out.newLine();
+  }
+
+  /**
+   * Flushes the buffered lines to the underlying output.
+   * @throws IOException if the output can not be flushed.
+   */
+  public void flush() throws IOException
+  {
+    out.flush();
+  }
+
+  /**
+   * Flushes and closes the underlying output.
+   * @throws IOException if the output can not be closed.
+   */
+  public void close() throws IOException
+  {
+    out.close();
+  }
+}
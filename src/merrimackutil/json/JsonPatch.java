@@ -0,0 +1,529 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+/**
+ * This class computes and applies JSON Patches (RFC 6902). A patch is a
+ * {@code JSONArray} of operation objects, each naming a location in the
+ * document with a JSON Pointer (RFC 6901). For example:
+ * <pre>
+ *   [ { "op" : "replace", "path" : "/hosts/0/address", "value" : "10.0.0.2" },
+ *     { "op" : "remove", "path" : "/hosts/3" } ]
+ * </pre>
+ * Sending the patch between two versions of a document, rather than the
+ * whole new version, keeps replicas in step at a cost proportional to
+ * the change.
+ * @author Zach Kissel
+ */
+public class JsonPatch
+{
+  /**
+   * Computes a patch that turns {@code source} into {@code target}.
+   * Members of objects are compared by name, and arrays are compared
+   * after stripping the elements they have in common at the front and
+   * back. Numbers are compared by value, so {@code 1} and {@code 1.0} are
+   * the same. Values in the patch are shared with {@code target}.
+   * @param source the original document.
+   * @param target the changed document.
+   * @return the patch.
+   */
+  public static JSONArray diff(JSONType source, JSONType target)
+  {
+    JSONArray patch = new JSONArray();
+
+    diff("", source, target, patch);
+    return patch;
+  }
+
+  /**
+   * Applies {@code patch} to {@code doc}. As RFC 6902 requires, the patch
+   * is applied as a whole or not at all: the operations are applied in
+   * order to a copy of the document, and only if every one succeeds are
+   * the top-level members of {@code doc} replaced with those of the copy.
+   * If an operation fails, {@code doc} is left unchanged. Values taken
+   * from the patch are copied.
+   * @param doc the document to patch.
+   * @param patch the patch.
+   * @return the patched document; this is {@code doc} unless the patch
+   * replaces the whole document, in which case {@code doc} is unchanged.
+   * @throws InvalidJSONException if the patch is malformed or an
+   * operation can not be applied to the document.
+   */
+  public static JSONType apply(JSONType doc, JSONArray patch) throws InvalidJSONException
+  {
+    Object work = copy(doc);
+    Object root = work;
+
+    for (int i = 0; i < patch.size(); i++)
+    {
+      JSONObject op = patch.getObject(i);
+      if (op == null)
+        throw new InvalidJSONException("Invalid patch, operation " + i + " is not an object.");
+      root = applyOp(root, op, i);
+    }
+
+    if (!(root instanceof JSONType))
+      throw new InvalidJSONException("Invalid patch, the document must remain an object or array.");
+    if (root != work)
+      return (JSONType) root;
+
+    // Every operation succeeded, so swap the patched copy into the document.
+    if (doc instanceof JSONObject)
+    {
+      ((JSONObject) doc).clear();
+      ((JSONObject) doc).putAll((JSONObject) work);
+    }
+    else
+    {
+      ((JSONArray) doc).clear();
+      ((JSONArray) doc).addAll((JSONArray) work);
+    }
+    return doc;
+  }
+
+  /************ Private Methods ************/
+
+  /**
+   * Adds the operations that turn {@code src} into {@code tgt} to the
+   * patch.
+   * @param path the pointer to the values.
+   * @param src the original value.
+   * @param tgt the changed value.
+   * @param patch the patch to add to.
+   */
+  private static void diff(String path, Object src, Object tgt, JSONArray patch)
+  {
+    if (src instanceof JSONObject && tgt instanceof JSONObject)
+    {
+      JSONObject srcObj = (JSONObject) src;
+      JSONObject tgtObj = (JSONObject) tgt;
+
+      for (Map.Entry<String, Object> ent : srcObj.entrySet())
+      {
+        String member = path + "/" + escape(ent.getKey());
+        if (!tgtObj.containsKey(ent.getKey()))
+          patch.add(op("remove", member, null, false));
+        else
+          diff(member, ent.getValue(), tgtObj.get(ent.getKey()), patch);
+      }
+      for (Map.Entry<String, Object> ent : tgtObj.entrySet())
+        if (!srcObj.containsKey(ent.getKey()))
+          patch.add(op("add", path + "/" + escape(ent.getKey()), ent.getValue(), true));
+    }
+    else if (src instanceof JSONArray && tgt instanceof JSONArray)
+      diffArray(path, (JSONArray) src, (JSONArray) tgt, patch);
+    else if (!jsonEquals(src, tgt))
+      patch.add(op("replace", path, tgt, true));
+  }
+
+  /**
+   * Adds the operations that turn array {@code src} into array
+   * {@code tgt} to the patch. Elements that differ at the same position
+   * are diffed, then extra elements are removed from the back or missing
+   * ones added.
+   * @param path the pointer to the arrays.
+   * @param src the original array.
+   * @param tgt the changed array.
+   * @param patch the patch to add to.
+   */
+  private static void diffArray(String path, JSONArray src, JSONArray tgt, JSONArray patch)
+  {
+    int start = 0;
+    int srcEnd = src.size();
+    int tgtEnd = tgt.size();
+
+    // Strip the common front and back.
+    while (start < srcEnd && start < tgtEnd && jsonEquals(src.get(start), tgt.get(start)))
+      start++;
+    while (srcEnd > start && tgtEnd > start &&
+        jsonEquals(src.get(srcEnd - 1), tgt.get(tgtEnd - 1)))
+    {
+      srcEnd--;
+      tgtEnd--;
+    }
+
+    int common = Math.min(srcEnd, tgtEnd) - start;
+    for (int i = start; i < start + common; i++)
+      diff(path + "/" + i, src.get(i), tgt.get(i), patch);
+
+    // Remove from the back so earlier indices stay put.
+    for (int i = srcEnd - 1; i >= start + common; i--)
+      patch.add(op("remove", path + "/" + i, null, false));
+    for (int i = start + common; i < tgtEnd; i++)
+      patch.add(op("add", path + "/" + i, tgt.get(i), true));
+  }
+
+  /**
+   * Builds an operation object.
+   * @param name the name of the operation.
+   * @param path the pointer the operation applies to.
+   * @param value the value of the operation.
+   * @param hasValue true if the operation has a value member.
+   * @return the operation.
+   */
+  private static JSONObject op(String name, String path, Object value, boolean hasValue)
+  {
+    JSONObject op = new JSONObject();
+
+    op.put("op", name);
+    op.put("path", path);
+    if (hasValue)
+      op.put("value", value);
+    return op;
+  }
+
+  /**
+   * Applies a single operation.
+   * @param root the document.
+   * @param op the operation.
+   * @param num the number of the operation for errors.
+   * @return the document after the operation.
+   * @throws InvalidJSONException if the operation can not be applied.
+   */
+  private static Object applyOp(Object root, JSONObject op, int num) throws InvalidJSONException
+  {
+    String name = op.getString("op");
+    String[] path = parsePointer(op.getString("path"), num);
+
+    if (name == null)
+      throw new InvalidJSONException("Invalid patch, operation " + num + " has no op.");
+
+    switch (name)
+    {
+      case "add":
+        return add(root, path, copy(valueOf(op, num)), num);
+      case "remove":
+        remove(root, path, num);
+        return root;
+      case "replace":
+        return replace(root, path, copy(valueOf(op, num)), num);
+      case "move":
+      {
+        String from = op.getString("from");
+        String to = op.getString("path");
+        if (from != null && to.startsWith(from + "/"))
+          throw new InvalidJSONException("Invalid patch, operation " + num +
+              " moves a value into itself.");
+        String[] fromPath = parsePointer(from, num);
+        Object val = get(root, fromPath, num);
+        if (fromPath.length == 0)
+          return val;     // Only a move onto the document itself gets here.
+        remove(root, fromPath, num);
+        return add(root, path, val, num);
+      }
+      case "copy":
+        return add(root, path, copy(get(root, parsePointer(op.getString("from"), num), num)), num);
+      case "test":
+        if (!jsonEquals(get(root, path, num), valueOf(op, num)))
+          throw new InvalidJSONException("Patch test failed at operation " + num + ".");
+        return root;
+      default:
+        throw new InvalidJSONException("Invalid patch, unknown op " + name + " at operation " +
+            num + ".");
+    }
+  }
+
+  /**
+   * Adds {@code val} at {@code path}, replacing any member of the same
+   * name or inserting into an array.
+   * @param root the document.
+   * @param path the pointer tokens.
+   * @param val the value to add.
+   * @param num the number of the operation for errors.
+   * @return the document after the addition.
+   * @throws InvalidJSONException if the parent does not exist.
+   */
+  private static Object add(Object root, String[] path, Object val, int num)
+      throws InvalidJSONException
+  {
+    if (path.length == 0)
+      return val;
+
+    Object parent = getParent(root, path, num);
+    String last = path[path.length - 1];
+    if (parent instanceof JSONObject)
+      ((JSONObject) parent).put(last, val);
+    else if (parent instanceof JSONArray)
+    {
+      JSONArray array = (JSONArray) parent;
+      if (last.equals("-"))
+        array.add(val);
+      else
+        array.add(index(last, array.size() + 1, num), val);
+    }
+    else
+      throw new InvalidJSONException("Invalid patch, no container for operation " + num + ".");
+    return root;
+  }
+
+  /**
+   * Replaces the value at {@code path} with {@code val}, leaving it in the
+   * same place among its siblings.
+   * @param root the document.
+   * @param path the pointer tokens.
+   * @param val the new value.
+   * @param num the number of the operation for errors.
+   * @return the document after the replacement.
+   * @throws InvalidJSONException if there is no value at the path.
+   */
+  private static Object replace(Object root, String[] path, Object val, int num)
+      throws InvalidJSONException
+  {
+    if (path.length == 0)
+      return val;
+
+    Object parent = getParent(root, path, num);
+    String last = path[path.length - 1];
+    if (parent instanceof JSONObject && ((JSONObject) parent).containsKey(last))
+      ((JSONObject) parent).put(last, val);
+    else if (parent instanceof JSONArray)
+      ((JSONArray) parent).set(index(last, ((JSONArray) parent).size(), num), val);
+    else
+      throw new InvalidJSONException("Invalid patch, no value to replace for operation " + num + ".");
+    return root;
+  }
+
+  /**
+   * Removes the value at {@code path}.
+   * @param root the document.
+   * @param path the pointer tokens.
+   * @param num the number of the operation for errors.
+   * @throws InvalidJSONException if there is no value at the path.
+   */
+  private static void remove(Object root, String[] path, int num) throws InvalidJSONException
+  {
+    if (path.length == 0)
+      throw new InvalidJSONException("Invalid patch, operation " + num + " removes the document.");
+
+    Object parent = getParent(root, path, num);
+    String last = path[path.length - 1];
+    if (parent instanceof JSONObject && ((JSONObject) parent).containsKey(last))
+      ((JSONObject) parent).remove(last);
+    else if (parent instanceof JSONArray)
+      ((JSONArray) parent).remove(index(last, ((JSONArray) parent).size(), num));
+    else
+      throw new InvalidJSONException("Invalid patch, no value to remove for operation " + num + ".");
+  }
+
+  /**
+   * Gets the container holding the last token of {@code path}.
+   * @param root the document.
+   * @param path the pointer tokens.
+   * @param num the number of the operation for errors.
+   * @return the container.
+   * @throws InvalidJSONException if there is no value at the path.
+   */
+  private static Object getParent(Object root, String[] path, int num) throws InvalidJSONException
+  {
+    Object cur = root;
+
+    for (int i = 0; i < path.length - 1; i++)
+      cur = step(cur, path[i], num);
+    return cur;
+  }
+
+  /**
+   * Gets the value at {@code path}.
+   * @param root the document.
+   * @param path the pointer tokens.
+   * @param num the number of the operation for errors.
+   * @return the value.
+   * @throws InvalidJSONException if there is no value at the path.
+   */
+  private static Object get(Object root, String[] path, int num) throws InvalidJSONException
+  {
+    Object cur = root;
+
+    for (String token : path)
+      cur = step(cur, token, num);
+    return cur;
+  }
+
+  /**
+   * Steps from a container to one of its members or elements.
+   * @param cur the container.
+   * @param token the member name or index.
+   * @param num the number of the operation for errors.
+   * @return the member or element.
+   * @throws InvalidJSONException if there is no such member or element.
+   */
+  private static Object step(Object cur, String token, int num) throws InvalidJSONException
+  {
+    if (cur instanceof JSONObject && ((JSONObject) cur).containsKey(token))
+      return ((JSONObject) cur).get(token);
+    else if (cur instanceof JSONArray)
+      return ((JSONArray) cur).get(index(token, ((JSONArray) cur).size(), num));
+    throw new InvalidJSONException("Invalid patch, path not found at operation " + num + ".");
+  }
+
+  /**
+   * Parses an array index.
+   * @param token the index.
+   * @param limit one past the largest index allowed.
+   * @param num the number of the operation for errors.
+   * @return the index.
+   * @throws InvalidJSONException if the index is not valid.
+   */
+  private static int index(String token, int limit, int num) throws InvalidJSONException
+  {
+    boolean digits = !token.isEmpty() && token.length() <= 9 &&
+        (token.charAt(0) != '0' || token.length() == 1);
+
+    for (int i = 0; digits && i < token.length(); i++)
+      digits = token.charAt(i) >= '0' && token.charAt(i) <= '9';
+
+    if (!digits || Integer.parseInt(token) >= limit)
+      throw new InvalidJSONException("Invalid patch, bad array index " + token +
+          " at operation " + num + ".");
+    return Integer.parseInt(token);
+  }
+
+  /**
+   * Gets the value member of an operation.
+   * @param op the operation.
+   * @param num the number of the operation for errors.
+   * @return the value.
+   * @throws InvalidJSONException if the operation has no value.
+   */
+  private static Object valueOf(JSONObject op, int num) throws InvalidJSONException
+  {
+    if (!op.containsKey("value"))
+      throw new InvalidJSONException("Invalid patch, operation " + num + " has no value.");
+    return op.get("value");
+  }
+
+  /**
+   * Splits a JSON Pointer into its unescaped tokens.
+   * @param pointer the pointer.
+   * @param num the number of the operation for errors.
+   * @return the tokens.
+   * @throws InvalidJSONException if the pointer is not valid.
+   */
+  private static String[] parsePointer(String pointer, int num) throws InvalidJSONException
+  {
+    if (pointer == null || (!pointer.isEmpty() && pointer.charAt(0) != '/'))
+      throw new InvalidJSONException("Invalid patch, bad pointer at operation " + num + ".");
+
+    ArrayList<String> tokens = new ArrayList<>();
+    int pos = 1;
+    while (pos <= pointer.length())
+    {
+      int end = pointer.indexOf('/', pos);
+      if (end < 0)
+        end = pointer.length();
+      tokens.add(pointer.substring(pos, end).replace("~1", "/").replace("~0", "~"));
+      pos = end + 1;
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  /**
+   * Determines if two JSON values are equal as RFC 6902 defines it for
+   * the test operation. Numbers are equal when their values are, whether
+   * they were parsed as a {@code Long} or a {@code Double}; objects and
+   * arrays are compared member by member.
+   * @param a the first value.
+   * @param b the second value.
+   * @return {@code true} if the values are equal; otherwise, {@code false}.
+   */
+  private static boolean jsonEquals(Object a, Object b)
+  {
+    if (a instanceof Number && b instanceof Number)
+      return numberEquals((Number) a, (Number) b);
+    else if (a instanceof JSONObject && b instanceof JSONObject)
+    {
+      JSONObject objA = (JSONObject) a;
+      JSONObject objB = (JSONObject) b;
+
+      if (objA.size() != objB.size())
+        return false;
+      for (Map.Entry<String, Object> ent : objA.entrySet())
+        if (!objB.containsKey(ent.getKey()) || !jsonEquals(ent.getValue(), objB.get(ent.getKey())))
+          return false;
+      return true;
+    }
+    else if (a instanceof JSONArray && b instanceof JSONArray)
+    {
+      JSONArray arrA = (JSONArray) a;
+      JSONArray arrB = (JSONArray) b;
+
+      if (arrA.size() != arrB.size())
+        return false;
+      for (int i = 0; i < arrA.size(); i++)
+        if (!jsonEquals(arrA.get(i), arrB.get(i)))
+          return false;
+      return true;
+    }
+    return Objects.equals(a, b);
+  }
+
+  /**
+   * Determines if two numbers have the same value. A {@code Long} and a
+   * {@code Double} are compared exactly, so large longs that round to
+   * the same double are still told apart.
+   * @param a the first number.
+   * @param b the second number.
+   * @return {@code true} if the values are equal; otherwise, {@code false}.
+   */
+  private static boolean numberEquals(Number a, Number b)
+  {
+    boolean realA = a instanceof Double || a instanceof Float;
+    boolean realB = b instanceof Double || b instanceof Float;
+
+    if (!realA && !realB)
+      return a.longValue() == b.longValue();
+    else if (realA && realB)
+      return a.doubleValue() == b.doubleValue();
+
+    double real = realA ? a.doubleValue() : b.doubleValue();
+    long integral = realA ? b.longValue() : a.longValue();
+    return Double.isFinite(real) &&
+        new BigDecimal(real).compareTo(BigDecimal.valueOf(integral)) == 0;
+  }
+
+  /**
+   * Escapes a member name for use in a JSON Pointer.
+   * @param name the name.
+   * @return the escaped name.
+   */
+  private static String escape(String name)
+  {
+    return name.replace("~", "~0").replace("/", "~1");
+  }
+
+  /**
+   * Makes a deep copy of a value so the patch and document share nothing.
+   * @param val the value.
+   * @return the copy.
+   */
+  private static Object copy(Object val)
+  {
+    if (val instanceof JSONObject)
+      return ((JSONObject) val).clone();
+    else if (val instanceof JSONArray)
+      return ((JSONArray) val).clone();
+    return val;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.util.ArrayList;
+import merrimackutil.json.lexer.TokenType;
+import merrimackutil.json.types.JSONArray;
+
+/**
+ * A compiled path expression that selects values out of a JSON document
+ * as it is read. Only the values the path matches are built; everything
+ * else is skipped by the {@code JsonReader} without being converted.
+ * <p>
+ * A path starts with {@code $}, the document itself, and is followed by
+ * any number of steps:
+ * <ul>
+ * <li>{@code .name} or {@code ['name']} selects a member of an object.</li>
+ * <li>{@code [n]} selects element {@code n} of an array.</li>
+ * <li>{@code .*} or {@code [*]} selects every member or element.</li>
+ * </ul>
+ * For example, {@code $.hosts[*].address} selects the address of every
+ * host in a hosts database.
+ * @author Zach Kissel
+ */
+public class JsonPath
+{
+  private String path;        // The text of the path.
+  private Step[] steps;       // The compiled steps of the path.
+
+  /**
+   * A single step of the path.
+   */
+  private static class Step
+  {
+    String name;      // The member name or null.
+    int index;        // The array index or -1.
+
+    Step(String name, int index)
+    {
+      this.name = name;
+      this.index = index;
+    }
+
+    boolean isWildcard()
+    {
+      return name == null && index == -1;
+    }
+  }
+
+  /**
+   * Compiles the path expression {@code path}.
+   * @param path the path expression.
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  public JsonPath(String path)
+  {
+    this.path = path;
+    steps = compile(path);
+  }
+
+  /**
+   * Selects the values matching the path from the document read by
+   * {@code reader}. Unless the reader is in multi-value mode, the input
+   * must end after the document. In multi-value mode the reader is left
+   * after the document, ready for the next one.
+   * @param reader the reader positioned at the start of the document.
+   * @return the matching values in document order.
+   * @throws InvalidJSONException if the document is not valid or is
+   * followed by more input.
+   */
+  public JSONArray select(JsonReader reader) throws InvalidJSONException
+  {
+    JSONArray matches = new JSONArray();
+
+    select(reader, 0, matches);
+    if (!reader.isMultiValue())
+      reader.endDocument();
+    return matches;
+  }
+
+  /**
+   * Gets the text of the path.
+   * @return the path expression.
+   */
+  public String toString()
+  {
+    return path;
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Matches the value at the reader's position against the steps of the
+   * path starting at step {@code step}.
+   * @param reader the reader positioned at a value.
+   * @param step the step to match.
+   * @param matches the list of matching values.
+   * @throws InvalidJSONException if the document is not valid.
+   */
+  private void select(JsonReader reader, int step, JSONArray matches) throws InvalidJSONException
+  {
+    if (step == steps.length)
+    {
+      matches.add(reader.nextValue());
+      return;
+    }
+
+    Step cur = steps[step];
+    TokenType tok = reader.peek();
+
+    if (tok == TokenType.LBRACE && cur.index == -1)
+    {
+      reader.beginObject();
+      while (reader.hasNext())
+      {
+        String name = reader.nextName();
+        if (cur.isWildcard() || cur.name.equals(name))
+          select(reader, step + 1, matches);
+        else
+          reader.skipValue();
+      }
+      reader.endObject();
+    }
+    else if (tok == TokenType.LBRACKET && cur.name == null)
+    {
+      reader.beginArray();
+      for (int i = 0; reader.hasNext(); i++)
+      {
+        if (cur.isWildcard() || cur.index == i)
+          select(reader, step + 1, matches);
+        else
+          reader.skipValue();
+      }
+      reader.endArray();
+    }
+    else
+      reader.skipValue();
+  }
+
+  /**
+   * Compiles the path into its steps.
+   * @param path the path expression.
+   * @return the steps of the path.
+   * @throws IllegalArgumentException if the path is not valid.
+   */
+  private static Step[] compile(String path)
+  {
+    ArrayList<Step> res = new ArrayList<>();
+    int i = 1;
+
+    if (path.isEmpty() || path.charAt(0) != '$')
+      throw new IllegalArgumentException("Path must start with $: " + path);
+
+    while (i < path.length())
+    {
+      char c = path.charAt(i);
+      if (c == '.')
+      {
+        int end = i + 1;
+        while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[')
+          end++;
+        if (end == i + 1)
+          throw new IllegalArgumentException("Empty name in path: " + path);
+
+        String name = path.substring(i + 1, end);
+        res.add(name.equals("*") ? new Step(null, -1) : new Step(name, -1));
+        i = end;
+      }
+      else if (c == '[')
+      {
+        int end = path.indexOf(']', i);
+        if (end == -1)
+          throw new IllegalArgumentException("Missing ] in path: " + path);
+
+        String sel = path.substring(i + 1, end).trim();
+        if (sel.equals("*"))
+          res.add(new Step(null, -1));
+        else if (sel.length() >= 2 && (sel.charAt(0) == '\'' || sel.charAt(0) == '\"') &&
+            sel.charAt(sel.length() - 1) == sel.charAt(0))
+          res.add(new Step(sel.substring(1, sel.length() - 1), -1));
+        else
+        {
+          try
+          {
+            int idx = Integer.parseInt(sel);
+            if (idx < 0)
+              throw new IllegalArgumentException("Negative index in path: " + path);
+            res.add(new Step(null, idx));
+          }
+          catch (NumberFormatException ex)
+          {
+            throw new IllegalArgumentException("Invalid selector [" + sel + "] in path: " + path);
+          }
+        }
+        i = end + 1;
+      }
+      else
+        throw new IllegalArgumentException("Unexpected " + c + " in path: " + path);
+    }
+    return res.toArray(new Step[0]);
+  }
+}
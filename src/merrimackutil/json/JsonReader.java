@@ -0,0 +1,582 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.Reader;
+import java.util.Arrays;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.lexer.TokenType;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+
+/**
+ * A pull parser that walks a JSON document one token at a time. Only the
+ * current token and a stack of the enclosing objects and arrays are kept,
+ * so documents of any size can be processed in constant memory. For
+ * example, the elements of a large array can be read one at a time:
+ * <pre>
+ *   reader.beginArray();
+ *   while (reader.hasNext())
+ *     process(reader.nextObject());
+ *   reader.endArray();
+ * </pre>
+ * By default the input must be a single document: once the top-level
+ * value has been read, anything but white space before the end of the
+ * input is an error. A stream of concatenated values is read by turning
+ * on multi-value mode with {@link #setMultiValue(boolean)}.
+ * @author Zach Kissel
+ */
+public class JsonReader implements Closeable
+{
+  // The possible scopes on the stack.
+  private static final int EMPTY_DOCUMENT = 0;     // No value read yet.
+  private static final int NONEMPTY_DOCUMENT = 1;  // A top-level value has been read.
+  private static final int EMPTY_ARRAY = 2;        // An array with no elements read.
+  private static final int NONEMPTY_ARRAY = 3;     // An array with at least one element read.
+  private static final int EMPTY_OBJECT = 4;       // An object with no names read.
+  private static final int DANGLING_NAME = 5;      // A name has been read, the value has not.
+  private static final int NONEMPTY_OBJECT = 6;    // An object with at least one pair read.
+
+  private Lexer lex;          // The lexer for the reader.
+  private int[] stack;        // The stack of scopes.
+  private int depth;          // The number of scopes on the stack.
+  private TokenType peeked;   // The type of the peeked token, or null.
+  private boolean peekedName; // True if the peeked token is a name.
+  private boolean multiValue; // True if more than one top-level value may be read.
+
+  /**
+   * Constructs a new reader for the file {@code jsonFile}.
+   * @param jsonFile the JSON file to read.
+   * @throws FileNotFoundException if the file can not be found.
+   */
+  public JsonReader(File jsonFile) throws FileNotFoundException
+  {
+    this(new Lexer(jsonFile));
+  }
+
+  /**
+   * Constructs a new reader for the reader {@code in}.
+   * @param in the reader to read JSON from.
+   */
+  public JsonReader(Reader in)
+  {
+    this(new Lexer(in));
+  }
+
+  /**
+   * Constructs a new reader for the string {@code str}.
+   * @param str the JSON to read.
+   */
+  public JsonReader(String str)
+  {
+    this(new Lexer(str));
+  }
+
+  /**
+   * Constructs a new reader over the tokens of lexer {@code lex}.
+   * @param lex the lexer to read tokens from.
+   */
+  public JsonReader(Lexer lex)
+  {
+    this.lex = lex;
+    stack = new int[32];
+    stack[0] = EMPTY_DOCUMENT;
+    depth = 1;
+    peeked = null;
+  }
+
+  /**
+   * Gets the type of the next token without consuming it. Names in an
+   * object are reported as {@code TokenType.STRING}, the end of the
+   * input is reported as {@code TokenType.EOF}.
+   * @return the type of the next token.
+   * @throws InvalidJSONException if the next token is not valid here.
+   */
+  public TokenType peek() throws InvalidJSONException
+  {
+    if (peeked != null)
+      return peeked;
+
+    TokenType tok = lex.next();
+    switch (stack[depth - 1])
+    {
+      case EMPTY_DOCUMENT:
+        stack[depth - 1] = NONEMPTY_DOCUMENT;
+        if (tok == TokenType.EOF)
+          return setPeeked(tok, false);
+        return peekValue(tok);
+      case NONEMPTY_DOCUMENT:
+        if (tok == TokenType.EOF)
+          return setPeeked(tok, false);
+        if (!multiValue)
+          throw error("Expected the end of the input but found " + lex.getToken());
+        return peekValue(tok);
+      case EMPTY_ARRAY:
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        if (tok == TokenType.RBRACKET)
+          return setPeeked(tok, false);
+        return peekValue(tok);
+      case NONEMPTY_ARRAY:
+        if (tok == TokenType.RBRACKET)
+          return setPeeked(tok, false);
+        if (tok != TokenType.COMMA)
+          throw error("Invalid array definition -- expected , or ]");
+        return peekValue(lex.next());
+      case EMPTY_OBJECT:
+        if (tok == TokenType.RBRACE)
+          return setPeeked(tok, false);
+        return peekName(tok);
+      case NONEMPTY_OBJECT:
+        if (tok == TokenType.RBRACE)
+          return setPeeked(tok, false);
+        if (tok != TokenType.COMMA)
+          throw error("Bad class definition -- expected , or }.");
+        return peekName(lex.next());
+      case DANGLING_NAME:
+        stack[depth - 1] = NONEMPTY_OBJECT;
+        if (tok != TokenType.COLON)
+          throw error("Colon expected");
+        return peekValue(lex.next());
+      default:
+        throw error("Reader is in an invalid state.");
+    }
+  }
+
+  /**
+   * Turns multi-value mode on or off. In multi-value mode the input may
+   * hold any number of top-level values, one after another, such as a
+   * stream of records; otherwise it must hold a single value.
+   * @param multiValue true to allow more than one top-level value.
+   */
+  public void setMultiValue(boolean multiValue)
+  {
+    this.multiValue = multiValue;
+  }
+
+  /**
+   * Determines if the reader is in multi-value mode.
+   * @return true if more than one top-level value may be read; otherwise,
+   * false.
+   */
+  public boolean isMultiValue()
+  {
+    return multiValue;
+  }
+
+  /**
+   * Checks that the input ends here, with nothing but white space after
+   * the values read so far.
+   * @throws InvalidJSONException if there is more input.
+   */
+  public void endDocument() throws InvalidJSONException
+  {
+    if (peek() != TokenType.EOF)
+      throw error("Expected the end of the input but found " + lex.getToken());
+  }
+
+  /**
+   * Determines if the current object or array has another element.
+   * At the top level this determines if there is another value.
+   * @return true if there is another element; otherwise, false.
+   * @throws InvalidJSONException if the next token is not valid here.
+   */
+  public boolean hasNext() throws InvalidJSONException
+  {
+    TokenType tok = peek();
+    return tok != TokenType.RBRACE && tok != TokenType.RBRACKET && tok != TokenType.EOF;
+  }
+
+  /**
+   * Consumes the start of an object.
+   * @throws InvalidJSONException if the next token is not the start of an object.
+   */
+  public void beginObject() throws InvalidJSONException
+  {
+    expectValue(TokenType.LBRACE);
+    push(EMPTY_OBJECT);
+  }
+
+  /**
+   * Consumes the end of the current object.
+   * @throws InvalidJSONException if the next token is not the end of an object.
+   */
+  public void endObject() throws InvalidJSONException
+  {
+    expectValue(TokenType.RBRACE);
+    depth--;
+  }
+
+  /**
+   * Consumes the start of an array.
+   * @throws InvalidJSONException if the next token is not the start of an array.
+   */
+  public void beginArray() throws InvalidJSONException
+  {
+    expectValue(TokenType.LBRACKET);
+    push(EMPTY_ARRAY);
+  }
+
+  /**
+   * Consumes the end of the current array.
+   * @throws InvalidJSONException if the next token is not the end of an array.
+   */
+  public void endArray() throws InvalidJSONException
+  {
+    expectValue(TokenType.RBRACKET);
+    depth--;
+  }
+
+  /**
+   * Consumes the next name in the current object.
+   * @return the name.
+   * @throws InvalidJSONException if the next token is not a name.
+   */
+  public String nextName() throws InvalidJSONException
+  {
+    peek();
+    if (!peekedName)
+      throw error("Expected a name but found " + lex.getToken());
+
+    String name = lex.getName();
+    stack[depth - 1] = DANGLING_NAME;
+    peeked = null;
+    return name;
+  }
+
+  /**
+   * Consumes the next string value.
+   * @return the string.
+   * @throws InvalidJSONException if the next token is not a string.
+   */
+  public String nextString() throws InvalidJSONException
+  {
+    expectValue(TokenType.STRING);
+    return (String) lex.getValue();
+  }
+
+  /**
+   * Consumes the next number as a double.
+   * @return the number.
+   * @throws InvalidJSONException if the next token is not a number.
+   */
+  public double nextDouble() throws InvalidJSONException
+  {
+    expectValue(TokenType.NUMBER);
+    return ((Number) lex.getValue()).doubleValue();
+  }
+
+  /**
+   * Consumes the next number as a long.
+   * @return the number.
+   * @throws InvalidJSONException if the next token is not an integral number.
+   */
+  public long nextLong() throws InvalidJSONException
+  {
+    expectValue(TokenType.NUMBER);
+    Number val = (Number) lex.getValue();
+
+    if (val instanceof Double && Math.floor(val.doubleValue()) != val.doubleValue())
+      throw error("Expected an integer but found " + lex.getToken());
+    return val.longValue();
+  }
+
+  /**
+   * Consumes the next number as an int.
+   * @return the number.
+   * @throws InvalidJSONException if the next token is not an integral number.
+   */
+  public int nextInt() throws InvalidJSONException
+  {
+    long val = nextLong();
+
+    if (val != (int) val)
+      throw error("Integer " + val + " is out of range.");
+    return (int) val;
+  }
+
+  /**
+   * Consumes the next boolean value.
+   * @return the boolean.
+   * @throws InvalidJSONException if the next token is not {@code true} or
+   * {@code false}.
+   */
+  public boolean nextBoolean() throws InvalidJSONException
+  {
+    TokenType tok = peek();
+    if (peekedName || (tok != TokenType.TRUE && tok != TokenType.FALSE))
+      throw error("Expected a boolean but found " + lex.getToken());
+    peeked = null;
+    return tok == TokenType.TRUE;
+  }
+
+  /**
+   * Consumes the next null value.
+   * @throws InvalidJSONException if the next token is not {@code null}.
+   */
+  public void nextNull() throws InvalidJSONException
+  {
+    expectValue(TokenType.NULL);
+  }
+
+  /**
+   * Consumes the next value, building the resulting object, array or
+   * scalar value.
+   * @return the value; this is null for a JSON null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Object nextValue() throws InvalidJSONException
+  {
+    TokenType tok = peek();
+    if (peekedName)
+      throw error("Expected a value but found a name.");
+
+    switch (tok)
+    {
+      case LBRACE:
+        return nextObject();
+      case LBRACKET:
+        return nextArray();
+      case STRING:
+      case NUMBER:
+      case TRUE:
+      case FALSE:
+      case NULL:
+        peeked = null;
+        return lex.getValue();
+      default:
+        throw error("Invalid value " + lex.getToken());
+    }
+  }
+
+  /**
+   * Consumes the next object, building it in full.
+   * @return the object.
+   * @throws InvalidJSONException if the next value is not a valid object.
+   */
+  public JSONObject nextObject() throws InvalidJSONException
+  {
+    JSONObject obj = new JSONObject();
+
+    beginObject();
+    while (hasNext())
+    {
+      String name = nextName();
+      obj.put(name, nextValue());
+    }
+    endObject();
+    return obj;
+  }
+
+  /**
+   * Consumes the next array, building it in full.
+   * @return the array.
+   * @throws InvalidJSONException if the next value is not a valid array.
+   */
+  public JSONArray nextArray() throws InvalidJSONException
+  {
+    JSONArray array = new JSONArray();
+
+    beginArray();
+    while (hasNext())
+      array.add(nextValue());
+    endArray();
+    return array;
+  }
+
+  /**
+   * Skips the next value without building it. Nested objects and arrays
+   * are skipped by matching brackets only, their contents are not checked.
+   * If the next token is a name, only the name is skipped.
+   * @throws InvalidJSONException if there is no value to skip.
+   */
+  public void skipValue() throws InvalidJSONException
+  {
+    TokenType tok = peek();
+
+    if (peekedName)
+    {
+      nextName();
+      return;
+    }
+
+    switch (tok)
+    {
+      case LBRACE:
+      case LBRACKET:
+        skipNested();
+        break;
+      case STRING:
+      case NUMBER:
+      case TRUE:
+      case FALSE:
+      case NULL:
+        peeked = null;
+        break;
+      default:
+        throw error("Invalid value " + lex.getToken());
+    }
+  }
+
+  /**
+   * Get the current line number being processed.
+   * @return the current line number being processed.
+   */
+  public long getLineNumber()
+  {
+    return lex.getLineNumber();
+  }
+
+  /**
+   * Get the current column number being processed.
+   * @return the current column number being processed.
+   */
+  public long getColumnNumber()
+  {
+    return lex.getColumnNumber();
+  }
+
+  /**
+   * Closes the underlying input.
+   */
+  public void close()
+  {
+    lex.close();
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Checks that {@code tok} may start a value and records it as peeked.
+   * @param tok the token type to check.
+   * @return the token type.
+   * @throws InvalidJSONException if {@code tok} can not start a value.
+   */
+  private TokenType peekValue(TokenType tok) throws InvalidJSONException
+  {
+    switch (tok)
+    {
+      case LBRACE:
+      case LBRACKET:
+      case STRING:
+      case NUMBER:
+      case TRUE:
+      case FALSE:
+      case NULL:
+        return setPeeked(tok, false);
+      default:
+        throw error("Invalid value " + lex.getToken());
+    }
+  }
+
+  /**
+   * Checks that {@code tok} is a name and records it as peeked.
+   * @param tok the token type to check.
+   * @return the token type.
+   * @throws InvalidJSONException if {@code tok} is not a name.
+   */
+  private TokenType peekName(TokenType tok) throws InvalidJSONException
+  {
+    if (tok != TokenType.STRING)
+      throw error("Invalid key " + lex.getToken());
+    return setPeeked(tok, true);
+  }
+
+  /**
+   * Records the peeked token.
+   * @param tok the token type.
+   * @param name true if the token is a name.
+   * @return the token type.
+   */
+  private TokenType setPeeked(TokenType tok, boolean name)
+  {
+    peeked = tok;
+    peekedName = name;
+    return tok;
+  }
+
+  /**
+   * Consumes the next token if it is a value token of type {@code type}.
+   * @param type the expected token type.
+   * @throws InvalidJSONException if the next token is not of type {@code type}.
+   */
+  private void expectValue(TokenType type) throws InvalidJSONException
+  {
+    TokenType tok = peek();
+    if (tok != type || peekedName)
+      throw error("Expected " + type + " but found " + lex.getToken());
+    peeked = null;
+  }
+
+  /**
+   * Skips the object or array whose opening token has been peeked by
+   * counting brackets.
+   * @throws InvalidJSONException if the input ends before the value does.
+   */
+  private void skipNested() throws InvalidJSONException
+  {
+    int nesting = 1;
+    peeked = null;
+
+    while (nesting > 0)
+    {
+      switch (lex.next())
+      {
+        case LBRACE:
+        case LBRACKET:
+          nesting++;
+          break;
+        case RBRACE:
+        case RBRACKET:
+          nesting--;
+          break;
+        case EOF:
+          throw error("Unexpected end of input.");
+        case UNKNOWN:
+          throw error("Unexpected token " + lex.getToken());
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Pushes a new scope on to the stack.
+   * @param scope the scope to push.
+   */
+  private void push(int scope)
+  {
+    if (depth == stack.length)
+      stack = Arrays.copyOf(stack, depth * 2);
+    stack[depth++] = scope;
+  }
+
+  /**
+   * Builds an exception that includes the current position.
+   * @param msg the error message.
+   * @return the exception to throw.
+   */
+  private InvalidJSONException error(String msg)
+  {
+    return new InvalidJSONException("Error (Line: " + lex.getLineNumber() +
+        " Column: " + lex.getColumnNumber() + "): " + msg);
+  }
+}
@@ -0,0 +1,619 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+/**
+ * A writer that streams JSON to a {@code Writer}, {@code OutputStream}
+ * or any other {@code Appendable} one token at a time. The output is
+ * collected in an internal buffer and handed to the destination in
+ * blocks, so no string holding the whole document is ever built. The
+ * output is the same compact form produced by {@code toJSON()}, or the
+ * indented form produced by {@code getFormattedJSON()} if an indent is
+ * set. For example:
+ * <pre>
+ *   writer.beginObject();
+ *   writer.name("port").value(8080);
+ *   writer.endObject();
+ * </pre>
+ * @author Zach Kissel
+ */
+public class JsonWriter implements Closeable, Flushable
+{
+  private static final int BUFFER_SIZE = 8192;  // Size of the output buffer.
+
+  // The kinds of open scopes.
+  private static final byte OBJECT = 0;
+  private static final byte ARRAY = 1;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private Appendable out;       // The destination of the output.
+  private Writer writer;        // The destination if it is a writer, otherwise null.
+  private char[] buf;           // The output waiting to be written.
+  private int count;            // The number of characters in buf.
+  private byte[] scopes;        // The kind of each open object or array.
+  private boolean[] nonEmpty;   // True if the scope has at least one value.
+  private int depth;            // The number of open scopes.
+  private boolean afterName;    // True if a name has been written without its value.
+  private String indent;        // The indent for one level, null for compact output.
+  private String[] indents;     // The indent strings for each level, built as needed.
+
+  /**
+   * Constructs a writer that writes to {@code out}.
+   * @param out the writer to write to.
+   */
+  public JsonWriter(Writer out)
+  {
+    this((Appendable) out);
+  }
+
+  /**
+   * Constructs a writer that writes UTF-8 encoded JSON to {@code out}.
+   * @param out the stream to write to.
+   */
+  public JsonWriter(OutputStream out)
+  {
+    this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Constructs a writer that appends to {@code out}.
+   * @param out the destination to append to.
+   */
+  public JsonWriter(Appendable out)
+  {
+    this.out = out;
+    if (out instanceof Writer)
+      writer = (Writer) out;
+    buf = new char[BUFFER_SIZE];
+    count = 0;
+    scopes = new byte[32];
+    nonEmpty = new boolean[32];
+    depth = 0;
+    afterName = false;
+    indent = null;
+  }
+
+  /**
+   * Converts {@code value} to a compact JSON string.
+   * @param value the value to convert.
+   * @return the JSON form of the value.
+   */
+  public static String toJSON(Object value)
+  {
+    StringBuilder res = new StringBuilder();
+    JsonWriter json = new JsonWriter(res);
+
+    try
+    {
+      json.value(value);
+      json.flushBuffer();
+    }
+    catch (IOException ex)
+    {
+      // A string builder never throws.
+      throw new UncheckedIOException(ex);
+    }
+    return res.toString();
+  }
+
+  /**
+   * Converts {@code value} to an indented JSON string with three spaces
+   * per level, ending with a new line.
+   * @param value the value to convert.
+   * @return the formatted JSON form of the value.
+   */
+  public static String toFormattedJSON(Object value)
+  {
+    StringBuilder res = new StringBuilder();
+    JsonWriter json = new JsonWriter(res).setIndent("   ");
+
+    try
+    {
+      json.value(value);
+      json.newLine();
+      json.flushBuffer();
+    }
+    catch (IOException ex)
+    {
+      // A string builder never throws.
+      throw new UncheckedIOException(ex);
+    }
+    return res.toString();
+  }
+
+  /**
+   * Sets the indent used for each level of nesting. With an indent, each
+   * member and element is written on its own line and names are followed
+   * by {@code " : "}. A null or empty indent gives compact output.
+   * @param indent the indent for one level.
+   * @return this writer.
+   */
+  public JsonWriter setIndent(String indent)
+  {
+    if (indent == null || indent.isEmpty())
+      this.indent = null;
+    else
+      this.indent = indent;
+    indents = new String[] {""};
+    return this;
+  }
+
+  /**
+   * Starts a new object.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter beginObject() throws IOException
+  {
+    beforeValue();
+    openScope(OBJECT);
+    put('{');
+    return this;
+  }
+
+  /**
+   * Ends the current object.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   * @throws IllegalStateException if the current scope is not an object.
+   */
+  public JsonWriter endObject() throws IOException
+  {
+    closeScope(OBJECT);
+    put('}');
+    return this;
+  }
+
+  /**
+   * Starts a new array.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter beginArray() throws IOException
+  {
+    beforeValue();
+    openScope(ARRAY);
+    put('[');
+    return this;
+  }
+
+  /**
+   * Ends the current array.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   * @throws IllegalStateException if the current scope is not an array.
+   */
+  public JsonWriter endArray() throws IOException
+  {
+    closeScope(ARRAY);
+    put(']');
+    return this;
+  }
+
+  /**
+   * Writes the name of the next member of the current object.
+   * @param name the name of the member.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   * @throws IllegalStateException if the current scope is not an object.
+   */
+  public JsonWriter name(String name) throws IOException
+  {
+    if (depth == 0 || scopes[depth - 1] != OBJECT || afterName)
+      throw new IllegalStateException("A name is not allowed here.");
+
+    separate();
+    putQuoted(name);
+    put(indent == null ? ":" : " : ");
+    afterName = true;
+    return this;
+  }
+
+  /**
+   * Writes a string value, or null if {@code value} is null.
+   * @param value the string to write.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter value(String value) throws IOException
+  {
+    if (value == null)
+      return nullValue();
+
+    beforeValue();
+    putQuoted(value);
+    return this;
+  }
+
+  /**
+   * Writes an integer value.
+   * @param value the integer to write.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter value(long value) throws IOException
+  {
+    beforeValue();
+    put(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes a real value.
+   * @param value the real number to write.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter value(double value) throws IOException
+  {
+    beforeValue();
+    put(Double.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes a boolean value.
+   * @param value the boolean to write.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter value(boolean value) throws IOException
+  {
+    beforeValue();
+    put(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Writes a null value.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter nullValue() throws IOException
+  {
+    beforeValue();
+    put("null");
+    return this;
+  }
+
+  /**
+   * Writes any value that may be stored in a {@code JSONObject} or
+   * {@code JSONArray}. Objects and arrays are written member by member.
+   * @param value the value to write.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   */
+  public JsonWriter value(Object value) throws IOException
+  {
+    if (value == null)
+      return nullValue();
+    else if (value instanceof String)
+      return value((String) value);
+    else if (value instanceof JSONObject)
+    {
+      beginObject();
+      for (Map.Entry<String, Object> ent : ((JSONObject) value).entrySet())
+      {
+        name(ent.getKey());
+        value(ent.getValue());
+      }
+      return endObject();
+    }
+    else if (value instanceof JSONArray)
+    {
+      beginArray();
+      for (Object val : (JSONArray) value)
+        value(val);
+      return endArray();
+    }
+    else if (value instanceof JSONType)
+    {
+      beforeValue();
+      put(((JSONType) value).toJSON());
+      return this;
+    }
+
+    // Numbers, booleans and anything else are written as they print.
+    beforeValue();
+    put(value.toString());
+    return this;
+  }
+
+  /**
+   * Ends a top-level value with a new line. This separates the values of
+   * a JSON Lines (NDJSON) stream.
+   * @return this writer.
+   * @throws IOException if the output can not be written.
+   * @throws IllegalStateException if an object or array is still open.
+   */
+  public JsonWriter newLine() throws IOException
+  {
+    if (depth != 0)
+      throw new IllegalStateException("New lines are only allowed between top-level values.");
+    put('\n');
+    return this;
+  }
+
+  /**
+   * Writes the buffered output to the destination and flushes it.
+   * @throws IOException if the output can not be written.
+   */
+  public void flush() throws IOException
+  {
+    flushBuffer();
+    if (out instanceof Flushable)
+      ((Flushable) out).flush();
+  }
+
+  /**
+   * Writes the buffered output and closes the destination.
+   * @throws IOException if the output can not be written.
+   */
+  public void close() throws IOException
+  {
+    flushBuffer();
+    if (out instanceof Closeable)
+      ((Closeable) out).close();
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Writes the separator needed before a value.
+   * @throws IOException if the output can not be written.
+   */
+  private void beforeValue() throws IOException
+  {
+    if (afterName)
+    {
+      afterName = false;
+      return;
+    }
+    if (depth > 0 && scopes[depth - 1] == OBJECT)
+      throw new IllegalStateException("A name is required before a value in an object.");
+    separate();
+  }
+
+  /**
+   * Writes a comma if the current scope already has a value.
+   * @throws IOException if the output can not be written.
+   */
+  private void separate() throws IOException
+  {
+    if (depth == 0)
+      return;
+    if (nonEmpty[depth - 1])
+      put(',');
+    else
+      nonEmpty[depth - 1] = true;
+    if (indent != null)
+      putIndent();
+  }
+
+  /**
+   * Starts a new line indented to the current depth.
+   * @throws IOException if the output can not be written.
+   */
+  private void putIndent() throws IOException
+  {
+    if (depth >= indents.length)
+    {
+      int old = indents.length;
+      indents = Arrays.copyOf(indents, Math.max(depth + 1, old * 2));
+      for (int i = old; i < indents.length; i++)
+        indents[i] = indents[i - 1] + indent;
+    }
+    put('\n');
+    put(indents[depth]);
+  }
+
+  /**
+   * Opens a new scope.
+   * @param kind the kind of scope.
+   */
+  private void openScope(byte kind)
+  {
+    if (depth == scopes.length)
+    {
+      scopes = Arrays.copyOf(scopes, depth * 2);
+      nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+    }
+    scopes[depth] = kind;
+    nonEmpty[depth] = false;
+    depth++;
+  }
+
+  /**
+   * Closes the current scope.
+   * @param kind the kind of scope expected.
+   * @throws IOException if the output can not be written.
+   */
+  private void closeScope(byte kind) throws IOException
+  {
+    if (depth == 0 || scopes[depth - 1] != kind || afterName)
+      throw new IllegalStateException("Nesting problem, can not close " +
+          (kind == OBJECT ? "object." : "array."));
+    depth--;
+    if (indent != null)
+      putIndent();
+  }
+
+  /**
+   * Adds a character to the buffer.
+   * @param c the character.
+   * @throws IOException if the buffer can not be written.
+   */
+  private void put(char c) throws IOException
+  {
+    if (count == buf.length)
+      flushBuffer();
+    buf[count++] = c;
+  }
+
+  /**
+   * Adds a string to the buffer.
+   * @param str the string.
+   * @throws IOException if the buffer can not be written.
+   */
+  private void put(String str) throws IOException
+  {
+    put(str, 0, str.length());
+  }
+
+  /**
+   * Adds the characters of {@code str} from {@code from} up to {@code to}
+   * to the buffer.
+   * @param str the string.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @throws IOException if the buffer can not be written.
+   */
+  private void put(String str, int from, int to) throws IOException
+  {
+    int len = to - from;
+
+    if (len > buf.length - count)
+    {
+      flushBuffer();
+      if (len > buf.length)
+      {
+        out.append(str, from, to);
+        return;
+      }
+    }
+    str.getChars(from, to, buf, count);
+    count += len;
+  }
+
+  /**
+   * Adds {@code str} to the buffer as a quoted JSON string. The string is
+   * copied into the buffer in bulk and checked there; only a string with
+   * a quote, backslash or control character is escaped.
+   * @param str the string.
+   * @throws IOException if the buffer can not be written.
+   */
+  private void putQuoted(String str) throws IOException
+  {
+    int len = str.length();
+
+    put('\"');
+    if (len <= buf.length - count)
+    {
+      int start = count;
+      int end = start + len;
+      int i = start;
+
+      str.getChars(0, len, buf, start);
+      while (i < end && buf[i] >= ' ' && buf[i] != '\"' && buf[i] != '\\')
+        i++;
+
+      // Keep what was clean and escape the rest.
+      count = i;
+      if (i < end)
+        putEscaped(str, i - start);
+    }
+    else
+      putEscaped(str, 0);
+    put('\"');
+  }
+
+  /**
+   * Adds the characters of {@code str} from {@code from} on to the buffer,
+   * escaping those that can not appear in a JSON string.
+   * @param str the string.
+   * @param from the offset of the first character.
+   * @throws IOException if the buffer can not be written.
+   */
+  private void putEscaped(String str, int from) throws IOException
+  {
+    int len = str.length();
+    int run = from;
+
+    for (int i = from; i < len; i++)
+    {
+      char c = str.charAt(i);
+      if (c >= ' ' && c != '\"' && c != '\\')
+        continue;
+
+      put(str, run, i);
+      run = i + 1;
+      switch (c)
+      {
+        case '\"':
+          put("\\\"");
+          break;
+        case '\\':
+          put("\\\\");
+          break;
+        case '\b':
+          put("\\b");
+          break;
+        case '\f':
+          put("\\f");
+          break;
+        case '\n':
+          put("\\n");
+          break;
+        case '\r':
+          put("\\r");
+          break;
+        case '\t':
+          put("\\t");
+          break;
+        default:
+          put("\\u00");
+          put(HEX[c >> 4]);
+          put(HEX[c & 0xf]);
+          break;
+      }
+    }
+    put(str, run, len);
+  }
+
+  /**
+   * Hands the buffered output to the destination.
+   * @throws IOException if the output can not be written.
+   */
+  private void flushBuffer() throws IOException
+  {
+    if (count == 0)
+      return;
+    if (writer != null)
+      writer.write(buf, 0, count);
+    else
+      out.append(CharBuffer.wrap(buf, 0, count));
+    count = 0;
+  }
+}
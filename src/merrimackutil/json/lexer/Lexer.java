@@ -16,33 +16,50 @@
  */
 package merrimackutil.json.lexer;
 
-import java.io.BufferedReader;
-import java.io.StringReader;
+import java.io.Reader;
 import java.io.FileReader;
 import java.io.File;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HexFormat;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
 /**
- * This file implements a basic lexical analyzer.
+ * This file implements a basic lexical analyzer. The input is scanned
+ * through a window of characters and each token is recorded as a pair of
+ * offsets into that window. The text of a token is only turned into a
+ * string when it is asked for.
  * @author Zach Kissel
  */
  public class Lexer
  {
-   private BufferedReader input;      // The input to the lexer.
-   private char nextChar;             // The next character read.
-   private boolean skipRead;          // Whether or not to skip the next char
-                                      // read.
+   private static final int BUFFER_SIZE = 8192;  // Initial size of the window.
+   private static final int MAX_KEPT = 65536;    // Largest window kept by a reset.
+
+   private Reader input;              // The input to the lexer, null if fully buffered.
+   private ByteBuffer bytes;          // The UTF-8 input to the lexer, null if not bytes.
+   private ByteBuffer staging;        // Bytes waiting to be decoded.
+   private CharsetDecoder decoder;    // The decoder for the UTF-8 input.
+   private char[] buf;                // The window of input being scanned.
+   private boolean shared;            // True if buf belongs to the caller.
+   private int pos;                   // Offset of the next unread character in buf.
+   private int limit;                 // Offset one past the last valid character in buf.
+   private long bufStart;             // Offset of buf[0] in the whole input.
    private long currentLineNumber;    // The current line number being processed.
-   private long currentColNumber;     // The current column number being processed.
+   private long lineStart;            // Offset in the input of the start of the line.
+   private boolean trackLines;        // False if lines are only counted when asked for.
+   private long scanned;              // Offset in the input lines have been counted up to.
 
-   // The dictionary of language keywords
-   private HashMap<String, TokenType> keywords;
-
-   private enum CharacterClass {LETTER, DIGIT, WHITE_SPACE, OTHER, END, MINUS, PLUS, QUOTE, ESCAPE};
-   CharacterClass nextClass; // The character class of the nextChar.
+   private TokenType type;            // The type of the current token.
+   private int tokStart;              // Offset of the first character of the token text.
+   private int tokEnd;                // Offset one past the last character of the token text.
+   private boolean escaped;           // True if the current string has escape sequences.
+   private SymbolTable symbols;       // The object keys seen so far.
 
    /**
     * Constructs a new lexical analyzer whose source
@@ -52,10 +69,43 @@ import java.io.IOException;
     */
    public Lexer(File file) throws FileNotFoundException
    {
-     input = new BufferedReader(new FileReader(file));
+     this(new FileReader(file));
+   }
+
+   /**
+    * Constructs a new lexical analyzer whose source is a reader. The
+    * reader is read in blocks, so there is no need to buffer it.
+    * @param input the reader to lexically analyze.
+    */
+   public Lexer(Reader input)
+   {
+     this.input = input;
+     buf = new char[BUFFER_SIZE];
+     limit = 0;
+     currentLineNumber = 1;
+     trackLines = true;
+   }
+
+   /**
+    * Constructs a new lexical analyzer whose source is UTF-8 encoded
+    * bytes, such as a memory mapped file. The bytes are decoded in blocks
+    * as the window is filled, so only the part of the input being scanned
+    * is held as characters.
+    * @param input the bytes from the current position to the limit are
+    * lexically analyzed.
+    */
+   public Lexer(ByteBuffer input)
+   {
+     this.input = null;
+     bytes = input;
+     staging = ByteBuffer.allocate(BUFFER_SIZE);
+     decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+     buf = new char[BUFFER_SIZE];
+     limit = 0;
      currentLineNumber = 1;
-     currentColNumber = 0;
-     loadKeywords();
+     trackLines = true;
    }
 
    /**
@@ -64,10 +114,110 @@ import java.io.IOException;
     */
     public Lexer(String input)
     {
-      this.input = new BufferedReader(new StringReader(input));
+      this.input = null;
+      buf = input.toCharArray();
+      limit = buf.length;
       currentLineNumber = 1;
-      currentColNumber = 0;
-      loadKeywords();
+      trackLines = true;
+    }
+
+    /**
+     * Constructs a new lexical analyzer whose source is {@code len}
+     * characters of {@code buf} starting at {@code off}. The array is not
+     * copied, so it must not change while the lexer is in use.
+     * @param buf the array holding the input.
+     * @param off the offset of the input in {@code buf}.
+     * @param len the length of the input.
+     */
+    public Lexer(char[] buf, int off, int len)
+    {
+      this.input = null;
+      this.buf = buf;
+      pos = off;
+      limit = off + len;
+      lineStart = off;
+      scanned = off;
+      currentLineNumber = 1;
+      trackLines = true;
+      shared = true;
+    }
+
+    /**
+     * Resets the lexer to analyze the reader {@code input} from the
+     * start. The window and the table of keys seen are kept, so one lexer
+     * can be used for many small documents without allocating them again.
+     * Once the table is full it is dropped, so keys from earlier documents
+     * do not crowd out those of later ones. The previous input is not
+     * closed.
+     * @param input the reader to lexically analyze.
+     */
+    public void reset(Reader input)
+    {
+      this.input = input;
+      bytes = null;
+      if (shared || buf.length < BUFFER_SIZE || buf.length > MAX_KEPT)
+        buf = new char[BUFFER_SIZE];
+      shared = false;
+      restart(0);
+    }
+
+    /**
+     * Resets the lexer to analyze the string {@code input} from the
+     * start. The string is copied into the window if it fits; otherwise,
+     * a new window is allocated. The table of keys seen is kept unless it
+     * is full.
+     * @param input the input to lexically analyze.
+     */
+    public void reset(String input)
+    {
+      this.input = null;
+      bytes = null;
+      if (shared || buf.length < input.length() || buf.length > MAX_KEPT)
+        buf = input.toCharArray();
+      else
+        input.getChars(0, input.length(), buf, 0);
+      shared = false;
+      restart(input.length());
+    }
+
+    /**
+     * Resets the lexer to analyze {@code len} characters of {@code buf}
+     * starting at {@code off}. The array is not copied, so it must not
+     * change while the lexer is in use. The table of keys seen is kept
+     * unless it is full.
+     * @param buf the array holding the input.
+     * @param off the offset of the input in {@code buf}.
+     * @param len the length of the input.
+     */
+    public void reset(char[] buf, int off, int len)
+    {
+      this.input = null;
+      bytes = null;
+      this.buf = buf;
+      shared = true;
+      restart(off + len);
+      pos = off;
+      lineStart = off;
+      scanned = off;
+    }
+
+    /**
+     * Resets the lexer to analyze {@code len} characters of {@code buf}
+     * starting at {@code off}, where the input is one piece of a document
+     * that starts at {@code start}. Lines and columns are reported from
+     * the start of the document rather than the start of the piece.
+     * @param buf the array holding the input.
+     * @param start the offset of the document in {@code buf}.
+     * @param off the offset of the input in {@code buf}.
+     * @param len the length of the input.
+     */
+    public void reset(char[] buf, int start, int off, int len)
+    {
+      reset(buf, off, len);
+      lineStart = start;
+      scanned = start;
+      if (trackLines)
+        catchUp(off);
     }
 
     /**
@@ -76,148 +226,207 @@ import java.io.IOException;
      */
     public Token nextToken()
     {
-      String value = "";   // The value to be associated with the token.
-      CharacterClass prevClass = CharacterClass.OTHER; // The previous class for handling escape sequences. 
+      next();
+      return getToken();
+    }
 
-      getNonBlank();
-      switch (nextClass)
+    /**
+     * Advances to the next token in the stream without allocating a
+     * token. The text and value of the token can be retrieved using
+     * {@link #getText()} and {@link #getValue()}.
+     * @return the type of the next token.
+     */
+    public TokenType next()
+    {
+      escaped = false;
+      skipWhitespace();
+      tokStart = pos;
+      if (pos >= limit)
+        return setToken(TokenType.EOF, pos, pos);
+
+      char c = buf[pos];
+      switch (c)
       {
-        // The state where we are recognizing identifiers.
-        // Regex: [A-Za-Z][0-9a-zA-z]*
-        case QUOTE:
-          getChar();
-
-          // Read the rest of the identifier.
-          while (nextClass != CharacterClass.QUOTE && nextClass != CharacterClass.END)
-          {
-            value += nextChar;
-            prevClass = nextClass;
-            getChar();
-
-            // Handle escape sequences from the JSON Standard.
-            if (prevClass == CharacterClass.ESCAPE)
-            {
-              switch (nextChar)
-              {
-                case '\"':
-                case '\\':
-                case '/':
-                case 'b':
-                case 'f':
-                case 'n':
-                case 'r':
-                case 't':
-                  value += nextChar;
-                break;
-                case 'u':
-                  value += nextChar;
-                  String tmp = "";
-
-                  // Read 4 hex digits.
-                  for (int i = 0; i < 4; i++)
-                  {
-                    getChar();
-                    if (HexFormat.isHexDigit(nextChar))
-                    {
-                      tmp += nextChar;
-                      value += nextChar;
-                    }
-                    else
-                      return new Token(TokenType.UNKNOWN, "\\u"+tmp + ((nextChar != '\0')? nextChar:""));
-                  }
-                default:
-                  return new Token(TokenType.UNKNOWN, "\\u" + ((nextChar != '\0')? nextChar:""));
-              }
-              getChar();
-            }
-          }
-
-          if (nextClass == CharacterClass.END)
-            return new Token(TokenType.UNKNOWN, value);
-
-          return new Token(TokenType.STRING, value);
-        case LETTER:
-          value += nextChar;
-          getChar();
-
-          // Read the rest of the identifier.
-          while (nextClass == CharacterClass.DIGIT ||
-              nextClass == CharacterClass.LETTER)
-          {
-            value += nextChar;
-            getChar();
-          }
-          unread(); // The symbol just read is part of the next token.
-
-          // Check the keyword dictionary.
-          if (keywords.containsKey(value))
-            return new Token(keywords.get(value), "");
-          return new Token(TokenType.UNKNOWN, value);
-
-        // The state where we are recognizing digits.
-        // Regex: [0-9]+
-        case MINUS:
-        case DIGIT:
-          value += nextChar;
-          getChar();
-
-          while(nextClass == CharacterClass.DIGIT)
-          {
-            value += nextChar;
-            getChar();
-          }
-
-          if(nextChar == '.') // Decimal point.
-          {
-            value += nextChar;
-            getChar();
-            while (nextClass == CharacterClass.DIGIT)
-            {
-              value += nextChar;
-              getChar();
-            }
-          }
-          // Handle scientific notation.
-          if (nextChar == 'E' || nextChar == 'e')
-          {
-            value += nextChar;
-            getChar();
-            if (nextClass == CharacterClass.MINUS || nextClass == CharacterClass.PLUS)
-            {
-              value += nextChar;
-              getChar();
-            }
-            while(nextClass == CharacterClass.DIGIT)
-            {
-              value += nextChar;
-              getChar();
-            }
-          }
-
-          unread(); // The symbol just read is part of the next token.
-
-          return new Token(TokenType.NUMBER, value);
-
-        // Handles all special character symbols.
-        case OTHER:
-          return lookup();
-
-        // We reached the end of our input.
-        case END:
-          return new Token(TokenType.EOF, "");
-
-        // This should never be reached.
+        case '{':
+          pos++;
+          return setToken(TokenType.LBRACE, tokStart, pos);
+        case '}':
+          pos++;
+          return setToken(TokenType.RBRACE, tokStart, pos);
+        case '[':
+          pos++;
+          return setToken(TokenType.LBRACKET, tokStart, pos);
+        case ']':
+          pos++;
+          return setToken(TokenType.RBRACKET, tokStart, pos);
+        case ':':
+          pos++;
+          return setToken(TokenType.COLON, tokStart, pos);
+        case ',':
+          pos++;
+          return setToken(TokenType.COMMA, tokStart, pos);
+        case '\"':
+          return scanString();
+        case '-':
+        case '.':
+          return scanNumber();
         default:
-          return new Token(TokenType.UNKNOWN, "");
+          if (c >= '0' && c <= '9')
+            return scanNumber();
+          if (Character.isLetter(c))
+            return scanWord();
+          pos++;
+          return setToken(TokenType.UNKNOWN, tokStart, pos);
       }
     }
 
+    /**
+     * Gets the type of the current token.
+     * @return the type of the current token.
+     */
+    public TokenType getType()
+    {
+      return type;
+    }
+
+    /**
+     * Gets the text of the current token. For strings this is the
+     * text between the quotes with the escape sequences decoded. A
+     * string without escape sequences is copied in one piece.
+     * @return the text of the current token.
+     */
+    public String getText()
+    {
+      if (escaped)
+        return unescape(buf, tokStart, tokEnd - tokStart);
+      return new String(buf, tokStart, tokEnd - tokStart);
+    }
+
+    /**
+     * Gets the text of the current token as an object key. A key that
+     * this lexer has seen before is returned as the same {@code String}
+     * instance, so the keys of an array of similar objects are only
+     * allocated once.
+     * @return the text of the current token.
+     */
+    public String getName()
+    {
+      // Keys with escape sequences are rare, so they are not kept.
+      if (escaped)
+        return getText();
+      if (symbols == null)
+        symbols = new SymbolTable();
+      return symbols.lookup(buf, tokStart, tokEnd - tokStart);
+    }
+
+    /**
+     * Decodes the escape sequences in the {@code len} characters of
+     * {@code buf} starting at {@code off}, the text of a JSON string
+     * without its quotes. A {@code \\uXXXX} escape becomes a single
+     * UTF-16 code unit, so a surrogate pair written as two escapes becomes
+     * the character it encodes. The text between escapes is copied in
+     * bulk; text with no escapes is copied in one piece. An invalid escape
+     * sequence is left as it is.
+     * @param buf the array holding the text.
+     * @param off the offset of the text.
+     * @param len the length of the text.
+     * @return the decoded string.
+     */
+    public static String unescape(char[] buf, int off, int len)
+    {
+      int end = off + len;
+      int i = CharSearch.findQuote(buf, off, end);
+
+      if (i == end)
+        return new String(buf, off, len);
+
+      StringBuilder res = new StringBuilder(len);
+      int from = off;
+      while (i < end)
+      {
+        if (buf[i] == '\\')
+        {
+          res.append(buf, from, i - from);
+          from = i = decodeEscape(buf, i + 1, end, res);
+        }
+        else
+          i++;      // A bare quote, which is not part of an escape.
+        i = CharSearch.findQuote(buf, i, end);
+      }
+      res.append(buf, from, end - from);
+      return res.toString();
+    }
+
+    /**
+     * Gets the Java value of the current token. Strings are returned
+     * as a {@code String}, integers as a {@code Long}, other numbers
+     * as a {@code Double}, and {@code true} and {@code false} as a
+     * {@code Boolean}. All other
+     * tokens, including {@code null}, have a null value.
+     * @return the value of the current token.
+     */
+    public Object getValue()
+    {
+      switch (type)
+      {
+        case STRING:
+          return getText();
+        case NUMBER:
+          return NumberParser.parse(buf, tokStart, tokEnd - tokStart);
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Gets the current token as a {@code Token} object.
+     * @return a new token representing the current token.
+     */
+    public Token getToken()
+    {
+      switch (type)
+      {
+        case TRUE:
+        case FALSE:
+        case NULL:
+        case EOF:
+          return new Token(type, "");
+        default:
+          return new Token(type, getText());
+      }
+    }
+
+    /**
+     * Turns line tracking on or off. Line tracking is on by default. With
+     * it off, the lexer does not look for the ends of lines as it scans;
+     * instead the line and column are worked out from the input when they
+     * are asked for, which is usually only to report an error. This is
+     * faster for input, such as machine generated JSON, that seldom has
+     * errors. The line and column reported are the same either way.
+     * @param track true to count lines while scanning; false to count
+     * them only when needed.
+     */
+    public void setLineTracking(boolean track)
+    {
+      if (!trackLines)
+        catchUp(pos);
+      else
+        scanned = bufStart + pos;
+      trackLines = track;
+    }
+
     /**
      * Get the current line number being processed.
      * @return the current line number being processed.
      */
     public long getLineNumber()
     {
+      if (!trackLines)
+        catchUp(pos);
       return currentLineNumber;
     }
 
@@ -227,7 +436,29 @@ import java.io.IOException;
      */
     public long getColumnNumber()
     {
-      return currentColNumber;
+      if (!trackLines)
+        catchUp(pos);
+      return bufStart + pos - lineStart;
+    }
+
+    /**
+     * Closes the input of the lexer.
+     */
+    public void close()
+    {
+      bytes = null;
+      if (input == null)
+        return;
+
+      try
+      {
+        input.close();
+      }
+      catch (IOException ioe)
+      {
+        System.err.println("Internal error (close()): " + ioe);
+      }
+      input = null;
     }
 
     /************
@@ -235,141 +466,420 @@ import java.io.IOException;
      ************/
 
      /**
-      * Processes the {@code nextChar} and returns the resulting token.
-      * @return the new token.
+      * Moves the lexer back to the start of the window, dropping the table
+      * of keys if it is full.
+      * @param limit the number of valid characters in the window.
       */
-     private Token lookup()
+     private void restart(int limit)
      {
-       String value = "";
+       if (symbols != null && symbols.isFull())
+         symbols = null;
+       pos = 0;
+       this.limit = limit;
+       bufStart = 0;
+       lineStart = 0;
+       scanned = 0;
+       currentLineNumber = 1;
+       type = null;
+       tokStart = 0;
+       tokEnd = 0;
+     }
 
-       switch(nextChar)
+     /**
+      * Records the current token.
+      * @param type the type of the token.
+      * @param start the offset of the first character of the token text.
+      * @param end the offset one past the last character of the token text.
+      * @return the type of the token.
+      */
+     private TokenType setToken(TokenType type, int start, int end)
+     {
+       this.type = type;
+       tokStart = start;
+       tokEnd = end;
+       return type;
+     }
+
+     /**
+      * Scans a quoted string. The token text is the text between the
+      * quotes with the escape sequences left as they are; they are
+      * decoded when the text is asked for. A string with an invalid escape
+      * sequence is an unknown token.
+      * @return the type of the token.
+      */
+     private TokenType scanString()
+     {
+       boolean valid = true;
+
+       pos++;           // Skip the opening quote.
+       tokStart = pos;
+
+       while (true)
        {
-         case '-':
-          value += "-";
-         case '.':      // A double with just a leading dot.
-          value += ".";
-          getChar();
-          if (nextClass != CharacterClass.DIGIT)
-          {
-            unread();
-            return new Token(TokenType.UNKNOWN, "." + String.valueOf(nextChar));
-          }
-          while (nextClass == CharacterClass.DIGIT)
-          {
-            value += nextChar;
-            getChar();
-          }
-          unread();
-          return new Token(TokenType.NUMBER, value);
-         case '{':
-          return new Token(TokenType.LBRACE, "{");
-         case '}':
-          return new Token(TokenType.RBRACE, "}");
-         case '[':
-           return new Token(TokenType.LBRACKET, "[");
-         case ']':
-           return new Token(TokenType.RBRACKET, "]");
-         case ':':
-           return new Token(TokenType.COLON, ":");
-         case ',':
-          return new Token(TokenType.COMMA, ",");
-         default:
-          return new Token(TokenType.UNKNOWN, String.valueOf(nextChar));
+         // Scan the buffered characters in bulk.
+         if (trackLines)
+           pos = CharSearch.findQuoteOrNewLine(buf, pos, limit);
+         else
+           pos = CharSearch.findQuote(buf, pos, limit);
+
+         if (pos >= limit)
+         {
+           if (!fill())
+             return setToken(TokenType.UNKNOWN, tokStart, pos);
+           continue;
+         }
+
+         char c = buf[pos];
+         if (c == '\"')
+         {
+           pos++;
+           return setToken(valid ? TokenType.STRING : TokenType.UNKNOWN, tokStart, pos - 1);
+         }
+         else if (c == '\n')
+         {
+           newLine();
+           pos++;
+         }
+         else
+         {
+           escaped = true;
+           if (!scanEscape())
+             valid = false;
+         }
        }
      }
 
      /**
-      * Gets the next character from the buffered reader. This updates
-      * potentially both {@code nextChar} and {@code nextClass}.
+      * Decodes the escape sequence following a backslash.
+      * @param buf the array holding the text.
+      * @param i the offset of the character after the backslash.
+      * @param end the offset one past the end of the text.
+      * @param res the builder to append the decoded character to.
+      * @return the offset of the character after the escape sequence.
       */
-     private void getChar()
+     private static int decodeEscape(char[] buf, int i, int end, StringBuilder res)
      {
-       int c = -1;
+       char c = (i < end) ? buf[i] : 0;
 
-       // Handle the unread operation.
-       if (skipRead)
+       switch (c)
        {
-         skipRead = false;
-         return;
+         case '\"':
+         case '\\':
+         case '/':
+           res.append(c);
+           return i + 1;
+         case 'b':
+           res.append('\b');
+           return i + 1;
+         case 'f':
+           res.append('\f');
+           return i + 1;
+         case 'n':
+           res.append('\n');
+           return i + 1;
+         case 'r':
+           res.append('\r');
+           return i + 1;
+         case 't':
+           res.append('\t');
+           return i + 1;
+         case 'u':
+           int val = 0;
+           for (int k = i + 1; k < i + 5; k++)
+           {
+             int digit = (k < end) ? Character.digit(buf[k], 16) : -1;
+             if (digit < 0)
+             {
+               res.append('\\');
+               return i;
+             }
+             val = (val << 4) | digit;
+           }
+           res.append((char) val);
+           return i + 5;
+         default:
+           res.append('\\');
+           return i;
        }
+     }
 
-       try {
-         c = input.read();
+     /**
+      * Checks the escape sequence at {@code pos} against the JSON
+      * standard and moves past it.
+      * @return true if the escape sequence is valid; otherwise, false.
+      */
+     private boolean scanEscape()
+     {
+       pos++;         // Skip the backslash.
+       int c = peek();
+       switch (c)
+       {
+         case '\"':
+         case '\\':
+         case '/':
+         case 'b':
+         case 'f':
+         case 'n':
+         case 'r':
+         case 't':
+           pos++;
+           return true;
+         case 'u':
+           pos++;
+
+           // Read 4 hex digits.
+           for (int i = 0; i < 4; i++)
+           {
+             c = peek();
+             if (c == -1 || !HexFormat.isHexDigit(c))
+               return false;
+             pos++;
+           }
+           return true;
+         default:
+           if (c != -1)
+             pos++;
+           return false;
+       }
+     }
+
+     /**
+      * Scans a number. Regex: -?[0-9]*(.[0-9]*)?([eE][+-]?[0-9]+)? with at
+      * least one digit before the exponent.
+      * @return the type of the token.
+      */
+     private TokenType scanNumber()
+     {
+       boolean valid;
+
+       if (peek() == '-')
+         pos++;
+       valid = skipDigits();
+
+       if (peek() == '.') // Decimal point.
+       {
+         pos++;
+         valid = skipDigits() || valid;
        }
-       catch(IOException ioe)
+
+       // Handle scientific notation.
+       int c = peek();
+       if (c == 'E' || c == 'e')
        {
-         System.err.println("Internal error (getChar()): " + ioe);
-         nextChar = '\0';
-         nextClass = CharacterClass.END;
+         pos++;
+         c = peek();
+         if (c == '-' || c == '+')
+           pos++;
+         valid = skipDigits() && valid;
        }
 
-       // Update the column number. 
-       currentColNumber++;
+       if (!valid)
+         return setToken(TokenType.UNKNOWN, tokStart, pos);
+       return setToken(TokenType.NUMBER, tokStart, pos);
+     }
 
-       if (c == -1) // If there is no character to read, we've reached the end.
+     /**
+      * Moves past a sequence of digits.
+      * @return true if at least one digit was found; otherwise, false.
+      */
+     private boolean skipDigits()
+     {
+       boolean found = false;
+       int c = peek();
+
+       while (c >= '0' && c <= '9')
        {
-        nextChar = '\0';
-        nextClass = CharacterClass.END;
-        return;
+         found = true;
+         pos++;
+         c = peek();
        }
+       return found;
+     }
 
-       // Set the character and determine it's class.
-       nextChar = (char)c;
-       if (Character.isLetter(nextChar))
-        nextClass = CharacterClass.LETTER;
-       else if (Character.isDigit(nextChar))
-        nextClass = CharacterClass.DIGIT;
-       else if (Character.isWhitespace(nextChar))
-        nextClass = CharacterClass.WHITE_SPACE;
-       else if (nextChar == '-')
-        nextClass = CharacterClass.MINUS;
-       else if (nextChar == '+')
-        nextClass = CharacterClass.PLUS;
-       else if (nextChar == '\"')
-        nextClass = CharacterClass.QUOTE;
-       else if (nextChar == '\\')
-        nextClass = CharacterClass.ESCAPE;
-       else
-          nextClass = CharacterClass.OTHER;
+     /**
+      * Scans a word and checks it against the keywords.
+      * Regex: [A-Za-Z][0-9a-zA-z]*
+      * @return the type of the token.
+      */
+     private TokenType scanWord()
+     {
+       pos++;
+       int c = peek();
+       while (c != -1 && Character.isLetterOrDigit(c))
+       {
+         pos++;
+         c = peek();
+       }
+       setToken(TokenType.UNKNOWN, tokStart, pos);
+
+       // Check the keywords.
+       if (matches("null"))
+         type = TokenType.NULL;
+       else if (matches("true"))
+         type = TokenType.TRUE;
+       else if (matches("false"))
+         type = TokenType.FALSE;
+       return type;
+     }
+
+     /**
+      * Determines if the current token text is {@code word}.
+      * @param word the word to compare against.
+      * @return true if the token text is {@code word}; otherwise, false.
+      */
+     private boolean matches(String word)
+     {
+       if (tokEnd - tokStart != word.length())
+         return false;
 
-       // Update the line counter and reset the column 
-       // counter for error checking.
-       if (nextChar == '\n')
+       for (int i = 0; i < word.length(); i++)
+         if (buf[tokStart + i] != word.charAt(i))
+           return false;
+       return true;
+     }
+
+     /**
+      * Moves {@code pos} past any white space, counting lines as it goes.
+      */
+     private void skipWhitespace()
+     {
+       while (true)
        {
-        currentLineNumber++;
-        currentColNumber = 0;
+         while (pos < limit)
+         {
+           char c = buf[pos];
+           if (c == '\n')
+           {
+             if (trackLines)
+               newLine();
+           }
+           else if (c != ' ' && c != '\t' && c != '\r' && !Character.isWhitespace(c))
+             return;
+           pos++;
+         }
+
+         // Nothing in the window needs to be kept.
+         tokStart = pos;
+         if (!fill())
+           return;
        }
      }
 
      /**
-      * Gets the next non-blank character.  This updates
-      * potentially both {@code nextChar} and {@code nextClass}.
+      * Records that the character at {@code pos} ends a line.
       */
-     private void getNonBlank()
+     private void newLine()
      {
-       getChar();
+       currentLineNumber++;
+       lineStart = bufStart + pos + 1;
+     }
+
+     /**
+      * Counts the lines in the part of the window that has not been
+      * counted yet, up to offset {@code upTo}. This is how lines are
+      * counted when line tracking is off.
+      * @param upTo the offset in the window to count up to.
+      */
+     private void catchUp(int upTo)
+     {
+       for (int i = (int) (scanned - bufStart); i < upTo; i++)
+       {
+         if (buf[i] == '\n')
+         {
+           currentLineNumber++;
+           lineStart = bufStart + i + 1;
+         }
+       }
+       scanned = Math.max(scanned, bufStart + upTo);
+     }
 
-       while (nextClass != CharacterClass.END &&
-            Character.isWhitespace(nextChar))
-            getChar();
+     /**
+      * Gets the character at {@code pos} without consuming it.
+      * @return the character or -1 if the end of input has been reached.
+      */
+     private int peek()
+     {
+       if (pos >= limit && !fill())
+         return -1;
+       return buf[pos];
      }
 
      /**
-      * Save the previous character for a future read operation.
+      * Reads more input into the window. The text of the current token,
+      * starting at {@code tokStart}, is moved to the front of the window
+      * and the window grows if the token fills it.
+      * @return true if more input was read; otherwise, false.
       */
-     private void unread()
+     private boolean fill()
      {
-        skipRead = true;
+       int n = -1;
+
+       if (input == null && bytes == null)
+         return false;
+
+       // Slide the current token to the front of the window.
+       if (tokStart > 0)
+       {
+         if (!trackLines)
+           catchUp(tokStart);
+         System.arraycopy(buf, tokStart, buf, 0, limit - tokStart);
+         bufStart += tokStart;
+         pos -= tokStart;
+         limit -= tokStart;
+         tokEnd -= tokStart;
+         tokStart = 0;
+       }
+
+       // Leave room for at least a surrogate pair.
+       if (limit >= buf.length - 1)
+         buf = Arrays.copyOf(buf, buf.length * 2);
+
+       if (bytes != null)
+         n = decode();
+       else
+       {
+         try
+         {
+           n = input.read(buf, limit, buf.length - limit);
+         }
+         catch (IOException ioe)
+         {
+           System.err.println("Internal error (fill()): " + ioe);
+         }
+       }
+
+       if (n <= 0)
+         return false;
+       limit += n;
+       return true;
      }
 
      /**
-      * Sets up the dictionary with all of the keywords.
+      * Decodes the next block of UTF-8 bytes into the free part of the
+      * window. The bytes are copied to the staging buffer in bulk so that
+      * the decoder can run over an array rather than byte by byte.
+      * @return the number of characters decoded, or -1 at the end of input.
       */
-      private void loadKeywords()
-      {
-        keywords = new HashMap<String, TokenType>();
-        keywords.put("null", TokenType.NULL);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("false", TokenType.FALSE);
-      }
+     private int decode()
+     {
+       CharBuffer out = CharBuffer.wrap(buf, limit, buf.length - limit);
+
+       while (out.position() == limit)
+       {
+         int n = Math.min(bytes.remaining(), staging.remaining());
+         if (n == 0 && staging.position() == 0)
+           return -1;
+
+         bytes.get(staging.array(), staging.position(), n);
+         staging.position(staging.position() + n);
+         staging.flip();
+
+         boolean end = !bytes.hasRemaining();
+         decoder.decode(staging, out, end);
+         if (end && !staging.hasRemaining())
+           decoder.flush(out);
+         staging.compact();
+       }
+       return out.position() - limit;
+     }
  }
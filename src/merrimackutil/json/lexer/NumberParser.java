@@ -0,0 +1,196 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.lexer;
+
+/**
+ * Converts the text of a JSON number into a {@code Long} or a
+ * {@code Double} without building an intermediate string. A number with
+ * no fraction or exponent that fits in 64 bits becomes a {@code Long};
+ * every other number becomes a {@code Double}.
+ * <p>
+ * Most doubles have at most 15 significant digits and a small exponent.
+ * Their digits fit exactly in a double and the power of ten is exact, so a
+ * single multiplication or division gives the correctly rounded result.
+ * Numbers outside this range fall back to {@code Double.parseDouble}.
+ * @author Zach Kissel
+ */
+public final class NumberParser
+{
+  private static final long MAX_EXACT = 1L << 53;   // Largest exactly representable mantissa.
+  private static final double[] POWERS = {          // The exact powers of ten.
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private NumberParser()
+  {
+  }
+
+  /**
+   * Converts the number in {@code text}.
+   * @param text the text of the number.
+   * @return the number as a {@code Long} or a {@code Double}.
+   * @throws NumberFormatException if the text is not a number.
+   */
+  public static Number parse(CharSequence text)
+  {
+    char[] buf = new char[text.length()];
+
+    for (int i = 0; i < buf.length; i++)
+      buf[i] = text.charAt(i);
+    return parse(buf, 0, buf.length);
+  }
+
+  /**
+   * Converts the number in the {@code len} characters of {@code buf}
+   * starting at {@code off}.
+   * @param buf the array holding the number.
+   * @param off the offset of the number.
+   * @param len the length of the number.
+   * @return the number as a {@code Long} or a {@code Double}.
+   * @throws NumberFormatException if the text is not a number.
+   */
+  public static Number parse(char[] buf, int off, int len)
+  {
+    int i = off;
+    int end = off + len;
+    boolean negative = false;
+    long mantissa = 0;      // The first 19 significant digits.
+    int digits = 0;         // The number of significant digits.
+    int dropped = 0;        // Integer digits that did not fit in the mantissa.
+    int scale = 0;          // The number of fraction digits kept.
+    boolean integral = true;
+
+    if (i < end && buf[i] == '-')
+    {
+      negative = true;
+      i++;
+    }
+
+    // Integer part.
+    int start = i;
+    for (; i < end && buf[i] >= '0' && buf[i] <= '9'; i++)
+    {
+      if (digits < 19)
+      {
+        mantissa = mantissa * 10 + (buf[i] - '0');
+        if (mantissa != 0)
+          digits++;
+      }
+      else
+        dropped++;
+    }
+    int intDigits = i - start;
+
+    // Fraction part.
+    int fracDigits = 0;
+    if (i < end && buf[i] == '.')
+    {
+      integral = false;
+      for (i++; i < end && buf[i] >= '0' && buf[i] <= '9'; i++)
+      {
+        fracDigits++;
+        if (digits < 19)
+        {
+          mantissa = mantissa * 10 + (buf[i] - '0');
+          scale++;
+          if (mantissa != 0)
+            digits++;
+        }
+      }
+    }
+
+    if (intDigits + fracDigits == 0)
+      throw new NumberFormatException("Invalid number " + new String(buf, off, len));
+
+    // Exponent part.
+    long exponent = 0;
+    if (i < end && (buf[i] == 'e' || buf[i] == 'E'))
+    {
+      boolean negExp = false;
+
+      integral = false;
+      i++;
+      if (i < end && (buf[i] == '+' || buf[i] == '-'))
+        negExp = (buf[i++] == '-');
+      if (i == end)
+        throw new NumberFormatException("Invalid number " + new String(buf, off, len));
+      for (; i < end && buf[i] >= '0' && buf[i] <= '9'; i++)
+        if (exponent < 100000)
+          exponent = exponent * 10 + (buf[i] - '0');
+      if (negExp)
+        exponent = -exponent;
+    }
+
+    if (i != end)
+      throw new NumberFormatException("Invalid number " + new String(buf, off, len));
+
+    if (integral)
+    {
+      // A long has no negative zero, so -0 keeps its sign as a double.
+      if (negative && mantissa == 0 && dropped == 0)
+        return Double.valueOf(-0.0);
+
+      // Every digit is in the mantissa unless the value overflows a long.
+      if (dropped == 0 && (digits < 19 || fitsLong(buf, start, intDigits, negative)))
+        return Long.valueOf(negative ? -mantissa : mantissa);
+      return Double.valueOf(Double.parseDouble(new String(buf, off, len)));
+    }
+
+    long power = exponent + dropped - scale;
+    if (digits < 19 && mantissa <= MAX_EXACT && power >= -22 && power <= 22)
+    {
+      double val = (double) mantissa;
+      if (power < 0)
+        val /= POWERS[(int) -power];
+      else
+        val *= POWERS[(int) power];
+      return Double.valueOf(negative ? -val : val);
+    }
+    return Double.valueOf(Double.parseDouble(new String(buf, off, len)));
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Determines if a 19 digit integer fits in a long.
+   * @param buf the array holding the digits.
+   * @param start the offset of the first digit.
+   * @param len the number of digits, including leading zeros.
+   * @param negative true if the number is negative.
+   * @return true if the number fits in a long; otherwise, false.
+   */
+  private static boolean fitsLong(char[] buf, int start, int len, boolean negative)
+  {
+    String limit = negative ? "9223372036854775808" : "9223372036854775807";
+
+    // Skip the leading zeros.
+    while (len > 0 && buf[start] == '0')
+    {
+      start++;
+      len--;
+    }
+    if (len != limit.length())
+      return len < limit.length();
+    for (int i = 0; i < len; i++)
+      if (buf[start + i] != limit.charAt(i))
+        return buf[start + i] < limit.charAt(i);
+    return true;
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.lexer;
+
+import java.util.Arrays;
+import merrimackutil.json.InvalidJSONException;
+
+/**
+ * An index of the structural characters of a JSON document, that is, the
+ * braces, brackets, colons and commas that are not inside a string. Each
+ * opening brace or bracket is paired with its closing one, so a nested
+ * value can be stepped over without looking at its contents. Building the
+ * index only checks that strings are terminated and brackets are balanced;
+ * the tokens between the structural characters are not examined.
+ * @author Zach Kissel
+ */
+public class StructuralIndex
+{
+  private char[] buf;         // The document.
+  private int start;          // Offset of the first character of the document.
+  private int end;            // Offset one past the last character of the document.
+  private int[] positions;    // Offsets of the structural characters.
+  private int[] matches;      // Index of the matching bracket for each bracket.
+  private int count;          // The number of structural characters.
+
+  /**
+   * Builds the index of the whole of {@code buf}.
+   * @param buf the document to index.
+   * @throws InvalidJSONException if a string is not terminated or the
+   * brackets are not balanced.
+   */
+  public StructuralIndex(char[] buf) throws InvalidJSONException
+  {
+    this(buf, 0, buf.length);
+  }
+
+  /**
+   * Builds the index of {@code len} characters of {@code buf} starting
+   * at {@code off}. The array is not copied.
+   * @param buf the array holding the document.
+   * @param off the offset of the document in {@code buf}.
+   * @param len the length of the document.
+   * @throws InvalidJSONException if a string is not terminated or the
+   * brackets are not balanced.
+   */
+  public StructuralIndex(char[] buf, int off, int len) throws InvalidJSONException
+  {
+    this.buf = buf;
+    start = off;
+    end = off + len;
+    positions = new int[Math.max(16, len / 8)];
+    count = 0;
+    scan();
+    matchBrackets();
+  }
+
+  /**
+   * Gets the array holding the document.
+   * @return the array holding the document.
+   */
+  public char[] getBuffer()
+  {
+    return buf;
+  }
+
+  /**
+   * Gets the offset of the first character of the document.
+   * @return the offset of the start of the document.
+   */
+  public int getStart()
+  {
+    return start;
+  }
+
+  /**
+   * Gets the offset one past the last character of the document.
+   * @return the offset of the end of the document.
+   */
+  public int getEnd()
+  {
+    return end;
+  }
+
+  /**
+   * Gets the number of structural characters in the document.
+   * @return the number of structural characters.
+   */
+  public int size()
+  {
+    return count;
+  }
+
+  /**
+   * Gets the offset of structural character {@code idx}.
+   * @param idx the index of the structural character.
+   * @return the offset in the buffer.
+   */
+  public int getPosition(int idx)
+  {
+    return positions[idx];
+  }
+
+  /**
+   * Gets structural character {@code idx}.
+   * @param idx the index of the structural character.
+   * @return the character.
+   */
+  public char getChar(int idx)
+  {
+    return buf[positions[idx]];
+  }
+
+  /**
+   * Gets the index of the bracket matching structural character {@code idx}.
+   * @param idx the index of a brace or bracket.
+   * @return the index of the matching brace or bracket.
+   */
+  public int getMatch(int idx)
+  {
+    return matches[idx];
+  }
+
+  /**
+   * Gets the index of the structural character after the value that
+   * starts after structural character {@code idx}. If the value is an
+   * object or array, its contents are skipped.
+   * @param idx the index of the structural character before the value.
+   * @return the index of the structural character that ends the value.
+   */
+  public int skipValue(int idx)
+  {
+    int next = idx + 1;
+    char c = getChar(next);
+
+    if ((c == '{' || c == '[') && isBlank(positions[idx] + 1, positions[next]))
+      return matches[next] + 1;
+    return next;
+  }
+
+  /**
+   * Determines if the characters from {@code from} up to {@code to} are
+   * all white space.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @return true if the characters are white space; otherwise, false.
+   */
+  public boolean isBlank(int from, int to)
+  {
+    for (int i = from; i < to; i++)
+      if (!isWhitespace(buf[i]))
+        return false;
+    return true;
+  }
+
+  /**
+   * Determines if {@code c} is JSON white space.
+   * @param c the character to check.
+   * @return true if {@code c} is white space; otherwise, false.
+   */
+  public static boolean isWhitespace(char c)
+  {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || Character.isWhitespace(c);
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Records the offsets of the structural characters.
+   * @throws InvalidJSONException if a string is not terminated.
+   */
+  private void scan() throws InvalidJSONException
+  {
+    int i = start;
+
+    while (i < end)
+    {
+      switch (CharSearch.classOf(buf[i]))
+      {
+        case CharSearch.QUOTE:
+          i = skipString(i + 1);
+          break;
+        case CharSearch.STRUCTURAL:
+          add(i);
+          break;
+        default:
+          break;
+      }
+      i++;
+    }
+  }
+
+  /**
+   * Finds the closing quote of the string starting at {@code i}.
+   * @param i the offset of the first character after the opening quote.
+   * @return the offset of the closing quote.
+   * @throws InvalidJSONException if the string is not terminated.
+   */
+  private int skipString(int i) throws InvalidJSONException
+  {
+    while (i < end)
+    {
+      i = CharSearch.findQuote(buf, i, end);
+      if (i < end && buf[i] == '\"')
+        return i;
+      i += 2;     // Skip the backslash and the character it escapes.
+    }
+    throw new InvalidJSONException("Unterminated string.");
+  }
+
+  /**
+   * Adds a structural character to the index.
+   * @param pos the offset of the character.
+   */
+  private void add(int pos)
+  {
+    if (count == positions.length)
+      positions = Arrays.copyOf(positions, count * 2);
+    positions[count++] = pos;
+  }
+
+  /**
+   * Pairs each opening brace or bracket with its closing one.
+   * @throws InvalidJSONException if the brackets are not balanced.
+   */
+  private void matchBrackets() throws InvalidJSONException
+  {
+    int[] stack = new int[32];
+    int depth = 0;
+
+    matches = new int[count];
+    for (int idx = 0; idx < count; idx++)
+    {
+      char c = buf[positions[idx]];
+      if (c == '{' || c == '[')
+      {
+        if (depth == stack.length)
+          stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = idx;
+      }
+      else if (c == '}' || c == ']')
+      {
+        if (depth == 0)
+          throw new InvalidJSONException("Unexpected " + c + " at offset " + (positions[idx] - start));
+
+        int open = stack[--depth];
+        if ((c == '}') != (buf[positions[open]] == '{'))
+          throw new InvalidJSONException("Mismatched " + c + " at offset " + (positions[idx] - start));
+        matches[open] = idx;
+        matches[idx] = open;
+      }
+    }
+
+    if (depth != 0)
+      throw new InvalidJSONException("Unexpected end of input.");
+  }
+}
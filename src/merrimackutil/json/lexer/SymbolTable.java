@@ -0,0 +1,144 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.lexer;
+
+/**
+ * A table of the object keys seen by a lexer. Looking up the characters
+ * of a key returns the same {@code String} instance each time the key is
+ * seen, and only the first occurrence allocates. Since every occurrence
+ * is the same instance, the hash code a {@code String} caches the first
+ * time it is hashed, such as when the key is first put into a map, is
+ * reused for every later occurrence.
+ * <p>
+ * The table stops growing once it holds {@code MAX_SYMBOLS} keys; after
+ * that, keys that are not in the table are returned as new strings.
+ * @author Zach Kissel
+ */
+public final class SymbolTable
+{
+  private static final int MAX_SYMBOLS = 4096;  // The most keys the table holds.
+  private static final int MAX_LENGTH = 64;     // The longest key the table holds.
+
+  private String[] symbols;     // The keys, indexed by hash.
+  private int[] hashes;         // The hash of each key.
+  private int count;            // The number of keys in the table.
+
+  /**
+   * Constructs an empty symbol table.
+   */
+  public SymbolTable()
+  {
+    symbols = new String[64];
+    hashes = new int[64];
+    count = 0;
+  }
+
+  /**
+   * Gets the canonical string for the {@code len} characters of
+   * {@code buf} starting at {@code off}.
+   * @param buf the array holding the key.
+   * @param off the offset of the key.
+   * @param len the length of the key.
+   * @return the key.
+   */
+  public String lookup(char[] buf, int off, int len)
+  {
+    if (len > MAX_LENGTH)
+      return new String(buf, off, len);
+
+    int hash = 0;
+    for (int i = off; i < off + len; i++)
+      hash = 31 * hash + buf[i];
+
+    int mask = symbols.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    String sym;
+    while ((sym = symbols[slot]) != null)
+    {
+      if (hashes[slot] == hash && matches(sym, buf, off, len))
+        return sym;
+      slot = (slot + 1) & mask;
+    }
+
+    sym = new String(buf, off, len);
+    if (count < MAX_SYMBOLS)
+    {
+      symbols[slot] = sym;
+      hashes[slot] = hash;
+      count++;
+      if (count * 2 > symbols.length)
+        grow();
+    }
+    return sym;
+  }
+
+  /**
+   * Determines if the table has stopped growing.
+   * @return true if the table holds {@code MAX_SYMBOLS} keys; otherwise,
+   * false.
+   */
+  public boolean isFull()
+  {
+    return count >= MAX_SYMBOLS;
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Determines if {@code sym} has the given characters.
+   * @param sym the key in the table.
+   * @param buf the array holding the characters.
+   * @param off the offset of the characters.
+   * @param len the number of characters.
+   * @return true if they are the same; otherwise, false.
+   */
+  private static boolean matches(String sym, char[] buf, int off, int len)
+  {
+    if (sym.length() != len)
+      return false;
+    for (int i = 0; i < len; i++)
+      if (sym.charAt(i) != buf[off + i])
+        return false;
+    return true;
+  }
+
+  /**
+   * Doubles the size of the table.
+   */
+  private void grow()
+  {
+    String[] oldSymbols = symbols;
+    int[] oldHashes = hashes;
+    int mask = oldSymbols.length * 2 - 1;
+
+    symbols = new String[oldSymbols.length * 2];
+    hashes = new int[oldSymbols.length * 2];
+    for (int i = 0; i < oldSymbols.length; i++)
+    {
+      if (oldSymbols[i] == null)
+        continue;
+      int hash = oldHashes[i];
+      int slot = (hash ^ (hash >>> 16)) & mask;
+      while (symbols[slot] != null)
+        slot = (slot + 1) & mask;
+      symbols[slot] = oldSymbols[i];
+      hashes[slot] = hash;
+    }
+  }
+}
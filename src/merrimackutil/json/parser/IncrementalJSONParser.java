@@ -0,0 +1,529 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.parser;
+
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.lexer.NumberParser;
+import merrimackutil.json.lexer.SymbolTable;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Implements a resumable JSON parser that is fed UTF-8 input in chunks,
+ * such as the buffers read from a non-blocking {@code SocketChannel}. All
+ * of the parser state is kept between calls to {@link #feed(ByteBuffer)},
+ * so no thread ever waits for more input. The input is a sequence of
+ * JSON objects and arrays; each value is made available through
+ * {@link #poll()} as soon as its closing bracket has been fed.
+ * @author Zach Kissel
+ */
+public class IncrementalJSONParser
+{
+  private static final char REPLACEMENT_CHAR = '\uFFFD';  // Replaces malformed UTF-8.
+
+  // The states of the token being scanned.
+  private static final int TOK_NONE = 0;     // Between tokens.
+  private static final int TOK_STRING = 1;   // Inside a string.
+  private static final int TOK_ESCAPE = 2;   // After a backslash in a string.
+  private static final int TOK_UNICODE = 3;  // Inside a \\u escape in a string.
+  private static final int TOK_NUMBER = 4;   // Inside a number.
+  private static final int TOK_WORD = 5;     // Inside true, false or null.
+
+  // The states of the grammar.
+  private static final int EXPECT_ROOT = 0;           // Before a top-level value.
+  private static final int EXPECT_VALUE = 1;          // After a colon or comma in an array.
+  private static final int EXPECT_VALUE_OR_END = 2;   // After an opening bracket.
+  private static final int EXPECT_KEY = 3;            // After a comma in an object.
+  private static final int EXPECT_KEY_OR_END = 4;     // After an opening brace.
+  private static final int EXPECT_COLON = 5;          // After a key.
+  private static final int EXPECT_COMMA_OR_END = 6;   // After a value in an object or array.
+
+  private ArrayDeque<JSONType> completed;   // The completed top-level values.
+  private ArrayList<JSONType> containers;   // The open objects and arrays.
+  private ArrayList<String> keys;           // The pending key for each open object.
+  private SymbolTable symbols;              // The object keys seen so far.
+  private int state;                        // The grammar state.
+
+  private int tokState;                     // The token scanning state.
+  private boolean tokIsKey;                 // True if the string being scanned is a key.
+  private boolean tokEscaped;               // True if the string being scanned has escapes.
+  private int hexDigits;                    // The hex digits seen in a \\u escape.
+  private char[] text;                      // The text of the token being scanned.
+  private int textLen;                      // The length of the token text.
+
+  private int codePoint;                    // The code point being decoded.
+  private int pendingBytes;                 // The continuation bytes still expected.
+
+  private long lineNumber;                  // The current line number.
+  private long colNumber;                   // The current column number.
+
+  /**
+   * Constructs a new incremental parser with no input.
+   */
+  public IncrementalJSONParser()
+  {
+    completed = new ArrayDeque<>();
+    containers = new ArrayList<>();
+    keys = new ArrayList<>();
+    symbols = new SymbolTable();
+    text = new char[64];
+    reset();
+  }
+
+  /**
+   * Discards all input and completed values so the parser can be used
+   * on a new stream. This must be called to continue after an error.
+   */
+  public void reset()
+  {
+    completed.clear();
+    containers.clear();
+    keys.clear();
+    state = EXPECT_ROOT;
+    tokState = TOK_NONE;
+    textLen = 0;
+    pendingBytes = 0;
+    lineNumber = 1;
+    colNumber = 0;
+  }
+
+  /**
+   * Parses all of the remaining bytes of {@code chunk}. The chunk may end
+   * anywhere, including in the middle of a token or of a UTF-8 sequence.
+   * @param chunk the UTF-8 input from the position to the limit.
+   * @throws InvalidJSONException if the input is not valid JSON.
+   */
+  public void feed(ByteBuffer chunk) throws InvalidJSONException
+  {
+    while (chunk.hasRemaining())
+    {
+      int b = chunk.get() & 0xFF;
+
+      if (pendingBytes == 0 && b < 0x80)
+        process((char) b);
+      else
+        decode(b);
+    }
+  }
+
+  /**
+   * Gets the next completed value.
+   * @return the next completed object or array, or null if none is ready.
+   */
+  public JSONType poll()
+  {
+    return completed.poll();
+  }
+
+  /**
+   * Determines if there is a completed value waiting to be polled.
+   * @return true if a value is ready; otherwise, false.
+   */
+  public boolean hasValue()
+  {
+    return !completed.isEmpty();
+  }
+
+  /**
+   * Determines if the parser is between top-level values, that is, if
+   * all the input fed so far forms complete values.
+   * @return true if no value is partially parsed; otherwise, false.
+   */
+  public boolean isIdle()
+  {
+    return state == EXPECT_ROOT && tokState == TOK_NONE && pendingBytes == 0;
+  }
+
+  /**
+   * Signals that there is no more input.
+   * @throws InvalidJSONException if a value was only partially fed.
+   */
+  public void endOfInput() throws InvalidJSONException
+  {
+    if (!isIdle())
+      throw error("Unexpected end of input.");
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Decodes a byte that is part of a multibyte UTF-8 sequence. Malformed
+   * sequences are replaced with U+FFFD.
+   * @param b the byte to decode.
+   * @throws InvalidJSONException if the decoded character is not valid.
+   */
+  private void decode(int b) throws InvalidJSONException
+  {
+    if (pendingBytes > 0)
+    {
+      if ((b & 0xC0) != 0x80)
+      {
+        // The sequence was cut short, the byte starts something new.
+        pendingBytes = 0;
+        process(REPLACEMENT_CHAR);
+        if (b < 0x80)
+          process((char) b);
+        else
+          decode(b);
+        return;
+      }
+
+      codePoint = (codePoint << 6) | (b & 0x3F);
+      if (--pendingBytes == 0)
+      {
+        if (Character.isBmpCodePoint(codePoint))
+          process((char) codePoint);
+        else if (Character.isValidCodePoint(codePoint))
+        {
+          process(Character.highSurrogate(codePoint));
+          process(Character.lowSurrogate(codePoint));
+        }
+        else
+          process(REPLACEMENT_CHAR);
+      }
+    }
+    else if ((b & 0xE0) == 0xC0)
+    {
+      codePoint = b & 0x1F;
+      pendingBytes = 1;
+    }
+    else if ((b & 0xF0) == 0xE0)
+    {
+      codePoint = b & 0x0F;
+      pendingBytes = 2;
+    }
+    else if ((b & 0xF8) == 0xF0)
+    {
+      codePoint = b & 0x07;
+      pendingBytes = 3;
+    }
+    else
+      process(REPLACEMENT_CHAR);
+  }
+
+  /**
+   * Processes the next character of input.
+   * @param c the character.
+   * @throws InvalidJSONException if the character is not valid here.
+   */
+  private void process(char c) throws InvalidJSONException
+  {
+    colNumber++;
+    switch (tokState)
+    {
+      case TOK_STRING:
+        if (c == '\"')
+          finishString();
+        else
+        {
+          if (c == '\\')
+          {
+            tokState = TOK_ESCAPE;
+            tokEscaped = true;
+          }
+          else if (c == '\n')
+            newLine();
+          append(c);
+        }
+        return;
+      case TOK_ESCAPE:
+        switch (c)
+        {
+          case '\"':
+          case '\\':
+          case '/':
+          case 'b':
+          case 'f':
+          case 'n':
+          case 'r':
+          case 't':
+            tokState = TOK_STRING;
+            break;
+          case 'u':
+            tokState = TOK_UNICODE;
+            hexDigits = 0;
+            break;
+          default:
+            throw error("Invalid escape sequence \\" + c);
+        }
+        append(c);
+        return;
+      case TOK_UNICODE:
+        if (!HexFormat.isHexDigit(c))
+          throw error("Invalid escape sequence, expected a hex digit but found " + c);
+        if (++hexDigits == 4)
+          tokState = TOK_STRING;
+        append(c);
+        return;
+      case TOK_NUMBER:
+        if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-' || c == '+')
+        {
+          append(c);
+          return;
+        }
+        finishNumber();
+        break;
+      case TOK_WORD:
+        if (Character.isLetterOrDigit(c))
+        {
+          append(c);
+          return;
+        }
+        finishWord();
+        break;
+      default:
+        break;
+    }
+
+    // Between tokens.
+    switch (c)
+    {
+      case ' ':
+      case '\t':
+      case '\r':
+        break;
+      case '\n':
+        newLine();
+        break;
+      case '{':
+        startValue();
+        containers.add(new JSONObject());
+        keys.add(null);
+        state = EXPECT_KEY_OR_END;
+        break;
+      case '[':
+        startValue();
+        containers.add(new JSONArray());
+        keys.add(null);
+        state = EXPECT_VALUE_OR_END;
+        break;
+      case '}':
+        if (!(state == EXPECT_KEY_OR_END || state == EXPECT_COMMA_OR_END) || !inObject())
+          throw error("Unexpected }");
+        closeContainer();
+        break;
+      case ']':
+        if (!(state == EXPECT_VALUE_OR_END || state == EXPECT_COMMA_OR_END) || inObject())
+          throw error("Unexpected ]");
+        closeContainer();
+        break;
+      case ':':
+        if (state != EXPECT_COLON)
+          throw error("Unexpected :");
+        state = EXPECT_VALUE;
+        break;
+      case ',':
+        if (state != EXPECT_COMMA_OR_END)
+          throw error("Unexpected ,");
+        state = inObject() ? EXPECT_KEY : EXPECT_VALUE;
+        break;
+      case '\"':
+        tokIsKey = (state == EXPECT_KEY || state == EXPECT_KEY_OR_END);
+        if (!tokIsKey)
+          startScalar();
+        tokState = TOK_STRING;
+        tokEscaped = false;
+        textLen = 0;
+        break;
+      default:
+        if ((c >= '0' && c <= '9') || c == '-' || c == '.')
+        {
+          startScalar();
+          tokState = TOK_NUMBER;
+        }
+        else if (Character.isLetter(c))
+        {
+          startScalar();
+          tokState = TOK_WORD;
+        }
+        else if (Character.isWhitespace(c))
+          break;
+        else
+          throw error("Unexpected character " + c);
+        textLen = 0;
+        append(c);
+    }
+  }
+
+  /**
+   * Checks that an object or array may start here.
+   * @throws InvalidJSONException if a value is not expected.
+   */
+  private void startValue() throws InvalidJSONException
+  {
+    switch (state)
+    {
+      case EXPECT_ROOT:
+      case EXPECT_VALUE:
+      case EXPECT_VALUE_OR_END:
+        return;
+      case EXPECT_COLON:
+        throw error("Colon expected");
+      case EXPECT_COMMA_OR_END:
+        throw error(inObject() ? "Expected , or }" : "Expected , or ]");
+      default:
+        throw error("Invalid key");
+    }
+  }
+
+  /**
+   * Checks that a string, number or keyword value may start here.
+   * @throws InvalidJSONException if a scalar value is not expected.
+   */
+  private void startScalar() throws InvalidJSONException
+  {
+    if (state == EXPECT_ROOT)
+      throw error("Invalid JSON, { or [ expected.");
+    startValue();
+  }
+
+  /**
+   * Completes the string token, decoding any escape sequences.
+   */
+  private void finishString()
+  {
+    tokState = TOK_NONE;
+    if (tokIsKey)
+    {
+      if (tokEscaped)
+        keys.set(keys.size() - 1, Lexer.unescape(text, 0, textLen));
+      else
+        keys.set(keys.size() - 1, symbols.lookup(text, 0, textLen));
+      state = EXPECT_COLON;
+    }
+    else if (tokEscaped)
+      addValue(Lexer.unescape(text, 0, textLen));
+    else
+      addValue(new String(text, 0, textLen));
+  }
+
+  /**
+   * Completes the number token.
+   * @throws InvalidJSONException if the token is not a valid number.
+   */
+  private void finishNumber() throws InvalidJSONException
+  {
+    tokState = TOK_NONE;
+    try
+    {
+      addValue(NumberParser.parse(text, 0, textLen));
+    }
+    catch (NumberFormatException ex)
+    {
+      throw error("Invalid number " + new String(text, 0, textLen));
+    }
+  }
+
+  /**
+   * Completes the keyword token.
+   * @throws InvalidJSONException if the token is not a keyword.
+   */
+  private void finishWord() throws InvalidJSONException
+  {
+    tokState = TOK_NONE;
+    String word = new String(text, 0, textLen);
+    if (word.equals("true"))
+      addValue(Boolean.TRUE);
+    else if (word.equals("false"))
+      addValue(Boolean.FALSE);
+    else if (word.equals("null"))
+      addValue(null);
+    else
+      throw error("Invalid value " + word);
+  }
+
+  /**
+   * Closes the innermost object or array.
+   */
+  private void closeContainer()
+  {
+    JSONType val = containers.remove(containers.size() - 1);
+    keys.remove(keys.size() - 1);
+    addValue(val);
+  }
+
+  /**
+   * Adds a completed value to the innermost object or array, or to the
+   * completed values if it is a top-level value.
+   * @param val the completed value.
+   */
+  private void addValue(Object val)
+  {
+    if (containers.isEmpty())
+    {
+      completed.add((JSONType) val);
+      state = EXPECT_ROOT;
+      return;
+    }
+
+    JSONType top = containers.get(containers.size() - 1);
+    if (top.isObject())
+      ((JSONObject) top).put(keys.get(keys.size() - 1), val);
+    else
+      ((JSONArray) top).add(val);
+    state = EXPECT_COMMA_OR_END;
+  }
+
+  /**
+   * Determines if the innermost open value is an object.
+   * @return true if the innermost open value is an object; otherwise, false.
+   */
+  private boolean inObject()
+  {
+    return !containers.isEmpty() && containers.get(containers.size() - 1).isObject();
+  }
+
+  /**
+   * Appends a character to the token text.
+   * @param c the character to append.
+   */
+  private void append(char c)
+  {
+    if (textLen == text.length)
+      text = Arrays.copyOf(text, textLen * 2);
+    text[textLen++] = c;
+  }
+
+  /**
+   * Records the start of a new line.
+   */
+  private void newLine()
+  {
+    lineNumber++;
+    colNumber = 0;
+  }
+
+  /**
+   * Builds an exception that includes the current position.
+   * @param msg the error message.
+   * @return the exception to throw.
+   */
+  private InvalidJSONException error(String msg)
+  {
+    return new InvalidJSONException("Error (Line: " + lineNumber +
+        " Column: " + colNumber + "): " + msg);
+  }
+}
@@ -18,11 +18,14 @@ package merrimackutil.json.parser;
 
 import merrimackutil.json.lexer.Lexer;
 import merrimackutil.json.lexer.TokenType;
-import merrimackutil.json.lexer.Token;
 import merrimackutil.json.parser.ast.SyntaxTree;
 import merrimackutil.json.parser.ast.nodes.*;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.Reader;
 
 /**
  * Implements a  class for parsing JSON files.
@@ -33,7 +36,7 @@ public class JSONParser
   private Lexer lex;            // The lexer for the parser.
   private boolean errorFound;   // TokenType.TRUE if ther was a parser error.
   private boolean doTracing;    // TokenType.TRUE if we should run parser tracing.
-  private Token nextTok;        // The current token being analyzed.
+  private TokenType nextType;   // The type of the current token being analyzed.
   private StringBuilder log;    // The log buffer. 
 
   /**
@@ -62,6 +65,79 @@ public class JSONParser
     log = new StringBuilder();
   }
 
+  /**
+   * Construct a parser that parses the tokens produced by {@code lex}.
+   * @param lex the lexer to read tokens from.
+   */
+  public JSONParser(Lexer lex)
+  {
+    this.lex = lex;
+    errorFound = false;
+    doTracing = false;
+    log = new StringBuilder();
+  }
+
+  /**
+   * Resets the parser to parse the reader {@code input}. The lexer, its
+   * buffers and the error log are reused, so one parser can parse many
+   * small documents without setting up again. The previous input is not
+   * closed.
+   * @param input the reader to parse.
+   */
+  public void reset(Reader input)
+  {
+    lex.reset(input);
+    restart();
+  }
+
+  /**
+   * Resets the parser to parse the string {@code str}. The lexer, its
+   * buffers and the error log are reused.
+   * @param str the JSON to evaluate.
+   */
+  public void reset(String str)
+  {
+    lex.reset(str);
+    restart();
+  }
+
+  /**
+   * Resets the parser to parse {@code len} characters of {@code buf}
+   * starting at {@code off}. The array is not copied.
+   * @param buf the array holding the JSON.
+   * @param off the offset of the JSON in {@code buf}.
+   * @param len the length of the JSON.
+   */
+  public void reset(char[] buf, int off, int len)
+  {
+    lex.reset(buf, off, len);
+    restart();
+  }
+
+  /**
+   * Resets the parser to parse {@code len} characters of {@code buf}
+   * starting at {@code off}, which are one piece of a document starting
+   * at {@code start}. Errors are reported at their line and column in the
+   * whole document. The array is not copied.
+   * @param buf the array holding the JSON.
+   * @param start the offset of the document in {@code buf}.
+   * @param off the offset of the JSON in {@code buf}.
+   * @param len the length of the JSON.
+   */
+  public void reset(char[] buf, int start, int off, int len)
+  {
+    lex.reset(buf, start, off, len);
+    restart();
+  }
+
+  /**
+   * Closes the input of the parser.
+   */
+  public void close()
+  {
+    lex.close();
+  }
+
   /**
    * Turns tracing on an off.
    */
@@ -102,21 +178,100 @@ public class JSONParser
     nextToken();    // Get the first token.
     ast = new SyntaxTree(parseJSON());   // Start processing at the root of the tree.
 
-    if (nextTok.getType() != TokenType.EOF)
-      logError("Parse error, unexpected token " + nextTok);
+    if (nextType != TokenType.EOF)
+      logError("Parse error, unexpected token " + lex.getToken());
     return ast;
   }
 
+  /**
+   * Parses the input according to the grammar building the resulting
+   * {@code JSONObject} or {@code JSONArray} directly. Unlike {@link #parse()}
+   * no abstract syntax tree is constructed, the values are created as
+   * the tokens are consumed.
+   * @return the object or array represented by the input, or null if
+   * there was a parse error.
+   */
+  public JSONType parseDirect()
+  {
+    JSONType res = null;
+
+    nextToken();    // Get the first token.
+    trace("Enter <JSON>");
+    if (nextType == TokenType.LBRACE)
+    {
+      nextToken();
+      res = buildClass();
+    }
+    else if (nextType == TokenType.LBRACKET)
+    {
+      nextToken();
+      res = buildArray();
+    }
+    else
+    {
+      logError("Invalid JSON file, { or [ expected.");
+      return null;
+    }
+
+    if (errorFound)
+      return null;
+
+    if (nextType != TokenType.EOF)
+    {
+      logError("Parse error, unexpected token " + lex.getToken());
+      return null;
+    }
+    trace("Exit <JSON>");
+    return res;
+  }
+
+
+  /**
+   * Parses the input as a single JSON value of any type, including the
+   * scalar values, building it directly.
+   * @return the value represented by the input. This is null for a JSON
+   * null or if there was a parse error.
+   */
+  public Object parseDirectValue()
+  {
+    Object res;
+
+    nextToken();    // Get the first token.
+    trace("Enter <JSON>");
+    res = buildValue();
+
+    if (errorFound)
+      return null;
+
+    if (nextType != TokenType.EOF)
+    {
+      logError("Parse error, unexpected token " + lex.getToken());
+      return null;
+    }
+    trace("Exit <JSON>");
+    return res;
+  }
+
 
   /************
    * Private Methods.
    *
    * It is important to remember that all of our non-terminal processing methods
    * maintain the invariant that each method leaves the next unprocessed token
-   * in {@code nextTok}. This means each method can assume the value of
-   * {@code nextTok} has not yet been processed when the method begins.
+   * in {@code nextType}. This means each method can assume the value of
+   * {@code nextType} has not yet been processed when the method begins.
    ***********/
 
+   /**
+    * Clears the state left by the previous parse.
+    */
+   private void restart()
+   {
+     errorFound = false;
+     nextType = null;
+     log.setLength(0);
+   }
+
    /**
     * Method to handle the JSON file non-terminal.
     *
@@ -127,18 +282,18 @@ public class JSONParser
     {
       SyntaxNode res = null;
       trace("Enter <JSON>");
-      if (nextTok.getType() == TokenType.LBRACE)
+      if (nextType == TokenType.LBRACE)
       {
         nextToken();
         res = parseClass();
       }
-      else if (nextTok.getType() == TokenType.LBRACKET)
+      else if (nextType == TokenType.LBRACKET)
       {
         nextToken();
         res = parseArray();
       }
 
-      if (nextTok.getType() != TokenType.EOF)
+      if (nextType != TokenType.EOF)
       {
         logError("Invalid JSON file, EOF expected.");
         return null;
@@ -158,7 +313,7 @@ public class JSONParser
       trace("Enter <class>");
 
       // Check to see if we have an empty class.
-      if (nextTok.getType() == TokenType.RBRACE)
+      if (nextType == TokenType.RBRACE)
       {
         nextToken();
         return cnode;
@@ -171,7 +326,7 @@ public class JSONParser
       cnode.addKVPair(pair);
 
       // Handle the remaining key-value pairs.
-      while (nextTok.getType() == TokenType.COMMA)
+      while (nextType == TokenType.COMMA)
       {
         nextToken();
         pair = (KeyValueNode)parseKVPair();
@@ -181,7 +336,7 @@ public class JSONParser
       }
 
       // Make sure we have closed the class definition.
-      if (nextTok.getType() != TokenType.RBRACE)
+      if (nextType != TokenType.RBRACE)
       {
         logError("Bad class definition -- expected }.");
         return null;
@@ -201,7 +356,7 @@ public class JSONParser
        SyntaxNode val;
 
        trace("Enter <array>");
-       if (nextTok.getType() == TokenType.RBRACKET)
+       if (nextType == TokenType.RBRACKET)
        {
         nextToken();
         return anode;
@@ -212,7 +367,7 @@ public class JSONParser
        if (val == null)
         return null;
        anode.addValue(val);
-       while (nextTok.getType() == TokenType.COMMA)
+       while (nextType == TokenType.COMMA)
        {
          nextToken();
          val = parseValue();
@@ -221,7 +376,7 @@ public class JSONParser
          anode.addValue(val);
        }
 
-       if (nextTok.getType() != TokenType.RBRACKET)
+       if (nextType != TokenType.RBRACKET)
        {
          logError("Invalid array definition -- missing ]");
          return null;
@@ -240,14 +395,14 @@ public class JSONParser
        TokenNode key;
        SyntaxNode value;
        trace("Enter <kvpair>");
-       if (nextTok.getType() != TokenType.STRING)
+       if (nextType != TokenType.STRING)
        {
          logError("Invalid key");
          return null;
        }
-       key = new TokenNode(nextTok);
+       key = new TokenNode(lex.getToken());
        nextToken();
-       if (nextTok.getType() != TokenType.COLON)
+       if (nextType != TokenType.COLON)
        {
          logError("Colon expected");
          return null;
@@ -269,19 +424,19 @@ public class JSONParser
        SyntaxNode rv = null;
 
        trace("Enter <value>");
-       if (nextTok.getType() == TokenType.NULL || nextTok.getType() == TokenType.TRUE ||
-           nextTok.getType() == TokenType.FALSE || nextTok.getType() == TokenType.NUMBER ||
-           nextTok.getType() == TokenType.STRING)
+       if (nextType == TokenType.NULL || nextType == TokenType.TRUE ||
+           nextType == TokenType.FALSE || nextType == TokenType.NUMBER ||
+           nextType == TokenType.STRING)
        {
-            rv = new TokenNode(nextTok);
+            rv = new TokenNode(lex.getToken());
             nextToken();
        }
-       else if (nextTok.getType() == TokenType.LBRACE)
+       else if (nextType == TokenType.LBRACE)
         {
           nextToken();
           rv = parseClass();
         }
-        else if (nextTok.getType() == TokenType.LBRACKET)
+        else if (nextType == TokenType.LBRACKET)
         {
           nextToken();
           rv = parseArray();
@@ -295,6 +450,158 @@ public class JSONParser
        return rv;
      }
 
+   /************
+    * Direct construction methods.
+    *
+    * These methods mirror the non-terminal methods above, but build the
+    * JSON values as they go rather than syntax nodes. As JSON null is
+    * represented by a Java null, errors are detected by checking
+    * {@code errorFound} rather than by a null return value.
+    ***********/
+
+    /**
+     * Builds the JSON object corresponding to a class.
+     * @return the object, or null if there was an error.
+     */
+    private JSONObject buildClass()
+    {
+      JSONObject obj = new JSONObject();
+      trace("Enter <class>");
+
+      // Check to see if we have an empty class.
+      if (nextType == TokenType.RBRACE)
+      {
+        nextToken();
+        return obj;
+      }
+
+      // Add the first key-value pair to the class.
+      if (!buildKVPair(obj))
+        return null;
+
+      // Handle the remaining key-value pairs.
+      while (nextType == TokenType.COMMA)
+      {
+        nextToken();
+        if (!buildKVPair(obj))
+          return null;
+      }
+
+      // Make sure we have closed the class definition.
+      if (nextType != TokenType.RBRACE)
+      {
+        logError("Bad class definition -- expected }.");
+        return null;
+      }
+      nextToken();
+      trace("Exit <class>");
+      return obj;
+    }
+
+    /**
+     * Builds the JSON array corresponding to an array.
+     * @return the array, or null if there was an error.
+     */
+    private JSONArray buildArray()
+    {
+      JSONArray array = new JSONArray();
+      Object val;
+
+      trace("Enter <array>");
+      if (nextType == TokenType.RBRACKET)
+      {
+        nextToken();
+        return array;
+      }
+
+      // Add the first value to the array.
+      val = buildValue();
+      if (errorFound)
+        return null;
+      array.add(val);
+      while (nextType == TokenType.COMMA)
+      {
+        nextToken();
+        val = buildValue();
+        if (errorFound)
+          return null;
+        array.add(val);
+      }
+
+      if (nextType != TokenType.RBRACKET)
+      {
+        logError("Invalid array definition -- missing ]");
+        return null;
+      }
+      nextToken();
+      trace("Exit <array>");
+      return array;
+    }
+
+    /**
+     * Reads a key-value pair and adds it to {@code obj}.
+     * @param obj the object to add the pair to.
+     * @return true if the pair was added; otherwise, false.
+     */
+    private boolean buildKVPair(JSONObject obj)
+    {
+      String key;
+      Object value;
+      trace("Enter <kvpair>");
+      if (nextType != TokenType.STRING)
+      {
+        logError("Invalid key");
+        return false;
+      }
+      key = lex.getName();
+      nextToken();
+      if (nextType != TokenType.COLON)
+      {
+        logError("Colon expected");
+        return false;
+      }
+      nextToken();
+      value = buildValue();
+      if (errorFound)
+        return false;
+      obj.put(key, value);
+      trace("Exit <kvpair>");
+      return true;
+    }
+
+    /**
+     * Builds the Java value corresponding to a JSON value.
+     * @return the value, this may be null for a JSON null.
+     */
+    private Object buildValue()
+    {
+      Object rv = null;
+
+      trace("Enter <value>");
+      switch (nextType)
+      {
+        case NULL:
+        case TRUE:
+        case FALSE:
+        case STRING:
+        case NUMBER:
+          rv = lex.getValue();
+          break;
+        case LBRACE:
+          nextToken();
+          return buildClass();
+        case LBRACKET:
+          nextToken();
+          return buildArray();
+        default:
+          logError("Invalid value.");
+          return null;
+      }
+      nextToken();
+      trace("exit <value>");
+      return rv;
+    }
+
 
   /**
    * Logs an error to the console.
@@ -323,10 +630,10 @@ public class JSONParser
      */
     private void nextToken()
     {
-      nextTok = lex.nextToken();
+      nextType = lex.next();
 
       if (doTracing)
-        System.out.println("nextToken: " + nextTok);
+        System.out.println("nextToken: " + lex.getToken());
 
     }
 
@@ -0,0 +1,257 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.parser;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.lexer.StructuralIndex;
+import merrimackutil.json.types.JSONArray;
+
+/**
+ * Parses a document that is one large top-level array in parallel. The
+ * elements of the array are found with a {@code StructuralIndex}, which
+ * steps over nested values without parsing them. The elements are then
+ * split into chunks that are parsed independently by a
+ * {@code ForkJoinPool}, and the results are put into a single
+ * {@code JSONArray} in document order.
+ * @author Zach Kissel
+ */
+public class ParallelArrayParser
+{
+  private static final int CHUNK_SIZE = 64 * 1024;  // Characters parsed by a single task.
+
+  private ForkJoinPool pool;      // The pool that runs the tasks.
+
+  /**
+   * Constructs a parser that uses the common fork/join pool.
+   */
+  public ParallelArrayParser()
+  {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a parser that uses the pool {@code pool}.
+   * @param pool the pool to parse the elements with.
+   */
+  public ParallelArrayParser(ForkJoinPool pool)
+  {
+    this.pool = pool;
+  }
+
+  /**
+   * Parses the array in {@code buf}.
+   * @param buf the characters of the document.
+   * @return the array.
+   * @throws InvalidJSONException if the document is not a valid array.
+   */
+  public JSONArray parse(char[] buf) throws InvalidJSONException
+  {
+    return parse(buf, 0, buf.length);
+  }
+
+  /**
+   * Parses the array in the {@code len} characters of {@code buf}
+   * starting at {@code off}.
+   * @param buf the array holding the document.
+   * @param off the offset of the document.
+   * @param len the length of the document.
+   * @return the array.
+   * @throws InvalidJSONException if the document is not a valid array.
+   */
+  public JSONArray parse(char[] buf, int off, int len) throws InvalidJSONException
+  {
+    StructuralIndex index = new StructuralIndex(buf, off, len);
+    int[] bounds = findElements(index);
+    Object[] values = new Object[bounds.length / 2];
+
+    try
+    {
+      pool.invoke(new ParseTask(buf, off, bounds, values, 0, values.length));
+    }
+    catch (ElementException ex)
+    {
+      throw ex.getError();
+    }
+
+    JSONArray res = new JSONArray();
+    res.addAll(Arrays.asList(values));
+    return res;
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Finds the start and end offsets of the elements of the top-level
+   * array.
+   * @param index the index of the document.
+   * @return the start and end of each element, in pairs.
+   * @throws InvalidJSONException if the document is not a single array.
+   */
+  private static int[] findElements(StructuralIndex index) throws InvalidJSONException
+  {
+    if (index.size() == 0 || index.getChar(0) != '[' ||
+        !index.isBlank(index.getStart(), index.getPosition(0)))
+      throw new InvalidJSONException("Invalid JSON array, [ expected.");
+
+    int close = index.getMatch(0);
+    if (close != index.size() - 1 || !index.isBlank(index.getPosition(close) + 1, index.getEnd()))
+      throw new InvalidJSONException("Invalid JSON array, EOF expected.");
+
+    int[] bounds = new int[64];
+    int count = 0;
+
+    // Check to see if we have an empty array.
+    if (close == 1 && index.isBlank(index.getPosition(0) + 1, index.getPosition(1)))
+      return new int[0];
+
+    int idx = 0;
+    while (true)
+    {
+      int after = index.skipValue(idx);
+      int from = trimStart(index, index.getPosition(idx) + 1, index.getPosition(after));
+      int to = trimEnd(index, from, index.getPosition(after));
+      if (from == to)
+        throw new InvalidJSONException("Invalid value at element " + (count / 2) + ".");
+
+      if (count == bounds.length)
+        bounds = Arrays.copyOf(bounds, count * 2);
+      bounds[count++] = from;
+      bounds[count++] = to;
+
+      if (after == close)
+        break;
+      if (index.getChar(after) != ',')
+        throw new InvalidJSONException("Expected , or ] after element " + (count / 2 - 1) + ".");
+      idx = after;
+    }
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * Skips leading white space.
+   * @param index the index of the document.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @return the offset of the first character that is not white space.
+   */
+  private static int trimStart(StructuralIndex index, int from, int to)
+  {
+    char[] buf = index.getBuffer();
+
+    while (from < to && StructuralIndex.isWhitespace(buf[from]))
+      from++;
+    return from;
+  }
+
+  /**
+   * Skips trailing white space.
+   * @param index the index of the document.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @return the offset one past the last character that is not white space.
+   */
+  private static int trimEnd(StructuralIndex index, int from, int to)
+  {
+    char[] buf = index.getBuffer();
+
+    while (to > from && StructuralIndex.isWhitespace(buf[to - 1]))
+      to--;
+    return to;
+  }
+
+  /**
+   * Carries an {@code InvalidJSONException} out of a task.
+   */
+  private static class ElementException extends RuntimeException
+  {
+    private static final long serialVersionUID = 1L;
+    private InvalidJSONException error;   // The error in the element.
+
+    ElementException(InvalidJSONException error)
+    {
+      super(error);
+      this.error = error;
+    }
+
+    InvalidJSONException getError()
+    {
+      return error;
+    }
+  }
+
+  /**
+   * Parses a range of elements, splitting it in half until each piece
+   * is small enough.
+   */
+  private static class ParseTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+    private char[] buf;         // The array holding the document.
+    private int start;          // The offset of the document.
+    private int[] bounds;       // The start and end of each element.
+    private Object[] values;    // The parsed elements.
+    private int lo;             // The first element to parse.
+    private int hi;             // One past the last element to parse.
+
+    ParseTask(char[] buf, int start, int[] bounds, Object[] values, int lo, int hi)
+    {
+      this.buf = buf;
+      this.start = start;
+      this.bounds = bounds;
+      this.values = values;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (hi - lo > 1 && bounds[2 * hi - 1] - bounds[2 * lo] > CHUNK_SIZE)
+      {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new ParseTask(buf, start, bounds, values, lo, mid),
+            new ParseTask(buf, start, bounds, values, mid, hi));
+        return;
+      }
+
+      // One lexer and parser are reset over each element, so the setup
+      // and the table of keys are shared by the whole range. Lines are
+      // counted from the start of the document only if an error is
+      // reported, so its position is in the whole document.
+      Lexer lex = new Lexer(buf, 0, 0);
+      lex.setLineTracking(false);
+      JSONParser parser = new JSONParser(lex);
+
+      for (int i = lo; i < hi; i++)
+      {
+        int from = bounds[2 * i];
+        parser.reset(buf, start, from, bounds[2 * i + 1] - from);
+
+        values[i] = parser.parseDirectValue();
+        if (parser.hasError())
+          throw new ElementException(new InvalidJSONException("Invalid element " + i + ".\n" +
+              parser.getErrorLog().trim()));
+      }
+    }
+  }
+}
@@ -16,6 +16,7 @@
  */
 package merrimackutil.json.parser.ast.nodes;
 
+import merrimackutil.json.lexer.NumberParser;
 import merrimackutil.json.lexer.Token;
 
 /**
@@ -44,7 +45,7 @@ import merrimackutil.json.lexer.Token;
        switch(token.getType())
        {
          case NUMBER:
-          return Double.valueOf(token.getValue());
+          return NumberParser.parse(token.getValue());
          case TRUE:
           return Boolean.valueOf(true);
          case FALSE:
@@ -16,24 +16,73 @@
  */
 package merrimackutil.json.types;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
-import merrimackutil.json.lexer.Lexer;
-import merrimackutil.json.lexer.Token;
-import merrimackutil.json.lexer.TokenType;
+import java.util.Objects;
+import java.util.RandomAccess;
+import merrimackutil.json.JsonWriter;
 
 /**
- * Represent a JSON array as a linked list.
+ * Represent a JSON array as a list. An array whose elements are all
+ * numbers, such as a vector or a series of readings, is stored in a
+ * primitive array and its elements are boxed only as they are read. An
+ * array of {@code Long}s uses a {@code long[]}. Once a {@code Double} is
+ * added, as in {@code [0, 1.5, 2]}, the array is widened to a
+ * {@code double[]} with a flag for each element that was a {@code Long},
+ * so every element reads back as the type it was added as. The array
+ * switches to storing objects the first time any other kind of element
+ * is added, or a {@code Long} too large for a double to hold exactly.
+ * <p>
+ * An array may be frozen with {@link #freeze()}, after which it and every
+ * object and array nested in it can no longer be changed and may be
+ * shared by any number of threads without copying or locking. Freezing
+ * does not publish the array safely, though; see {@link #freeze()}.
+ * <p>
+ * Arrays are {@code Serializable} and {@code Cloneable}. They are
+ * serialized as a count followed by each element, and a clone is a deep
+ * copy.
+ * <p>
+ * Before version 2.0 this class extended {@code ArrayList}; code that held
+ * it as one should use {@code List} instead.
  * @author Zach Kissel
  */
-public final class JSONArray extends ArrayList<Object> implements JSONType
+public final class JSONArray extends AbstractList<Object>
+    implements JSONType, RandomAccess, Serializable, Cloneable
 {
+  private static final long serialVersionUID = 1L;
+
+  // The kinds of storage.
+  private static final int NONE = 0;      // No elements, nothing allocated.
+  private static final int LONGS = 1;     // Every element is a Long.
+  private static final int DOUBLES = 2;   // Every element is a Double or a small Long.
+  private static final int OBJECTS = 3;   // Elements of any kind.
+
+  private static final int MIN_CAPACITY = 8;    // The smallest capacity allocated.
+  private static final long MAX_EXACT = 1L << 53;   // The largest long a double holds exactly.
+
+  private transient int kind;           // The kind of storage in use.
+  private transient long[] longs;       // The elements when all are longs.
+  private transient double[] doubles;   // The elements when all are numbers.
+  private transient boolean[] integral; // Which doubles were added as Longs, null if none.
+  private transient Object[] objs;      // The elements otherwise.
+  private transient int size;           // The number of elements.
+  private transient int reserved;       // The capacity asked for before the first element.
+  private boolean frozen;               // True once the array can no longer be changed.
+  private transient int hash;           // The hash code, computed when frozen.
+
   /**
   * Default constructor builds an empty JSONArray.
   */
   public JSONArray()
   {
-    super();
+    kind = NONE;
+    size = 0;
   }
 
   /**
@@ -42,7 +91,383 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
    */
   public JSONArray(final Collection<?> collection)
   {
-    super(collection);
+    this();
+    addAll(collection);
+  }
+
+  /**
+   * Gets the number of elements in the array.
+   * @return the number of elements.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Gets the element at index {@code idx}.
+   * @param idx the index of the element.
+   * @return the element.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  @Override
+  public Object get(int idx)
+  {
+    Objects.checkIndex(idx, size);
+    switch (kind)
+    {
+      case LONGS:
+        return longs[idx];
+      case DOUBLES:
+        if (integral != null && integral[idx])
+          return Long.valueOf((long) doubles[idx]);
+        return doubles[idx];
+      default:
+        return objs[idx];
+    }
+  }
+
+  /**
+   * Replaces the element at index {@code idx}.
+   * @param idx the index of the element.
+   * @param val the new element.
+   * @return the element that was replaced.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  @Override
+  public Object set(int idx, Object val)
+  {
+    checkNotFrozen();
+    Object old = get(idx);
+
+    store(val);
+    put(idx, val);
+    return old;
+  }
+
+  /**
+   * Adds {@code val} to the end of the array.
+   * @param val the element to add.
+   * @return this method always returns {@code true}.
+   */
+  @Override
+  public boolean add(Object val)
+  {
+    checkNotFrozen();
+    store(val);
+    grow(size + 1);
+    put(size++, val);
+    modCount++;
+    return true;
+  }
+
+  /**
+   * Inserts {@code val} at index {@code idx}, shifting the later elements
+   * up.
+   * @param idx the index to insert at.
+   * @param val the element to insert.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  @Override
+  public void add(int idx, Object val)
+  {
+    checkNotFrozen();
+    Objects.checkIndex(idx, size + 1);
+    store(val);
+    grow(size + 1);
+    shift(idx, idx + 1, size - idx);
+    put(idx, val);
+    size++;
+    modCount++;
+  }
+
+  /**
+   * Removes the element at index {@code idx}, shifting the later elements
+   * down.
+   * @param idx the index of the element.
+   * @return the element removed.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  @Override
+  public Object remove(int idx)
+  {
+    checkNotFrozen();
+    Object old = get(idx);
+
+    shift(idx + 1, idx, size - idx - 1);
+    size--;
+    if (kind == OBJECTS)
+      objs[size] = null;
+    modCount++;
+
+    // An empty array may be specialized again.
+    if (size == 0)
+      clear();
+    return old;
+  }
+
+  /**
+   * Removes all of the elements of the array.
+   */
+  @Override
+  public void clear()
+  {
+    checkNotFrozen();
+    kind = NONE;
+    longs = null;
+    doubles = null;
+    integral = null;
+    objs = null;
+    size = 0;
+    modCount++;
+  }
+
+  /**
+   * Computes the hash code of the array. The hash code of a frozen array
+   * is computed once, when it is frozen.
+   * @return the hash code.
+   */
+  @Override
+  public int hashCode()
+  {
+    if (frozen)
+      return hash;
+    return computeHash();
+  }
+
+  /**
+   * Determines if {@code obj} is a list with the same elements as this
+   * array.
+   * @param obj the object to compare with.
+   * @return {@code true} if the elements are the same; otherwise, {@code false}.
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (obj instanceof JSONArray && frozen && ((JSONArray) obj).frozen &&
+        hash != ((JSONArray) obj).hash)
+      return false;
+    return super.equals(obj);
+  }
+
+  /**
+   * Freezes the array and every object and array nested in it. A frozen
+   * array can not be changed; any attempt throws an
+   * {@code UnsupportedOperationException}. Its storage is trimmed to size
+   * and its hash code is computed. A frozen array may be read concurrently
+   * by any number of threads.
+   * <p>
+   * Freezing does not provide safe publication. The fields of a frozen
+   * array are not final, so a thread that finds it through a data race,
+   * such as a plain field written by another thread, may see it partly
+   * built. Hand it to other threads once through a volatile or final
+   * field, a lock, or a concurrent collection; after that they need no
+   * further locking.
+   * @return this array.
+   */
+  public JSONArray freeze()
+  {
+    if (frozen)
+      return this;
+
+    if (kind == OBJECTS)
+      for (int i = 0; i < size; i++)
+      {
+        if (objs[i] instanceof JSONObject)
+          ((JSONObject) objs[i]).freeze();
+        else if (objs[i] instanceof JSONArray)
+          ((JSONArray) objs[i]).freeze();
+      }
+
+    trimToSize();
+    hash = computeHash();
+    frozen = true;
+    return this;
+  }
+
+  /**
+   * Makes sure the array can hold at least {@code min} elements without
+   * growing.
+   * @param min the number of elements to make room for.
+   */
+  public void ensureCapacity(int min)
+  {
+    if (frozen || min <= capacity())
+      return;
+
+    // The kind of storage is not known until the first element arrives.
+    if (kind == NONE)
+      reserved = Math.max(reserved, min);
+    else
+      grow(min);
+  }
+
+  /**
+   * Trims the storage of the array to its size.
+   */
+  public void trimToSize()
+  {
+    if (capacity() == size)
+      return;
+
+    modCount++;
+    if (kind == LONGS)
+      longs = Arrays.copyOf(longs, size);
+    else if (kind == DOUBLES)
+    {
+      doubles = Arrays.copyOf(doubles, size);
+      if (integral != null)
+        integral = Arrays.copyOf(integral, size);
+    }
+    else
+      objs = Arrays.copyOf(objs, size);
+  }
+
+  /**
+   * Makes a deep copy of the array. Nested objects and arrays are cloned
+   * as well, and the copy is never frozen, even if this array is.
+   * @return the copy.
+   */
+  @Override
+  public JSONArray clone()
+  {
+    JSONArray res;
+
+    try
+    {
+      res = (JSONArray) super.clone();
+    }
+    catch (CloneNotSupportedException ex)
+    {
+      // JSONArray is Cloneable.
+      throw new InternalError(ex);
+    }
+
+    res.longs = (longs == null) ? null : longs.clone();
+    res.doubles = (doubles == null) ? null : doubles.clone();
+    res.integral = (integral == null) ? null : integral.clone();
+    if (objs != null)
+    {
+      res.objs = new Object[objs.length];
+      for (int i = 0; i < size; i++)
+        res.objs[i] = JSONObject.cloneValue(objs[i]);
+    }
+    res.frozen = false;
+    res.hash = 0;
+    res.modCount = 0;
+    return res;
+  }
+
+  /**
+   * Determines if the array is frozen.
+   * @return {@code true} if the array is frozen; otherwise, {@code false}.
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Gets a frozen copy of this frozen array with the element at index
+   * {@code idx} replaced by {@code value}. The copy shares every other
+   * element with this array. If {@code value} is an object or array, it
+   * is frozen.
+   * @param idx the index of the element.
+   * @param value the new element.
+   * @return the updated copy.
+   * @throws IllegalStateException if this array is not frozen.
+   * @throws IndexOutOfBoundsException if the index is out of range.
+   */
+  public JSONArray with(int idx, Object value)
+  {
+    if (!frozen)
+      throw new IllegalStateException("Only a frozen array can be updated with with.");
+
+    JSONArray res = new JSONArray();
+    res.kind = kind;
+    res.longs = (longs == null) ? null : longs.clone();
+    res.doubles = (doubles == null) ? null : doubles.clone();
+    res.integral = (integral == null) ? null : integral.clone();
+    res.objs = (objs == null) ? null : objs.clone();
+    res.size = size;
+    res.set(idx, value);
+    return res.freeze();
+  }
+
+  /**
+   * Gets the elements of the array as doubles. Every element must be a
+   * {@code Long} or a {@code Double}; if not, null is returned.
+   * @return a new array of the elements or null.
+   */
+  public double[] toDoubleArray()
+  {
+    double[] res = new double[size];
+
+    switch (kind)
+    {
+      case DOUBLES:
+        System.arraycopy(doubles, 0, res, 0, size);
+        break;
+      case LONGS:
+        for (int i = 0; i < size; i++)
+          res[i] = longs[i];
+        break;
+      case OBJECTS:
+        for (int i = 0; i < size; i++)
+        {
+          if (objs[i] instanceof Double)
+            res[i] = (Double) objs[i];
+          else if (objs[i] instanceof Long)
+            res[i] = (Long) objs[i];
+          else
+            return null;
+        }
+        break;
+      default:
+        break;
+    }
+    return res;
+  }
+
+  /**
+   * Gets the elements of the array as longs. Every element must be a
+   * {@code Long} or a {@code Double} with an integral value in the range
+   * of a long; if not, null is returned.
+   * @return a new array of the elements or null.
+   */
+  public long[] toLongArray()
+  {
+    long[] res = new long[size];
+
+    switch (kind)
+    {
+      case LONGS:
+        System.arraycopy(longs, 0, res, 0, size);
+        break;
+      case DOUBLES:
+        for (int i = 0; i < size; i++)
+        {
+          if (!isLong(doubles[i]))
+            return null;
+          res[i] = (long) doubles[i];
+        }
+        break;
+      case OBJECTS:
+        for (int i = 0; i < size; i++)
+        {
+          if (objs[i] instanceof Long)
+            res[i] = (Long) objs[i];
+          else if (objs[i] instanceof Double && isLong((Double) objs[i]))
+            res[i] = (long) (double) (Double) objs[i];
+          else
+            return null;
+        }
+        break;
+      default:
+        break;
+    }
+    return res;
   }
 
   /**
@@ -72,7 +497,13 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
   {
     Object val = get(idx);
 
-    if (val instanceof Double)
+    if (val instanceof Long)
+    {
+      // Check if the integer fits in an int.
+      if ((Long) val == ((Long) val).intValue())
+        return ((Long) val).intValue();
+    }
+    else if (val instanceof Double)
     {
       // Check if this is an integer.
       if (Math.floor((Double)val) == (Double) val)
@@ -90,10 +521,15 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
    */
   public Double getDouble(int idx)
   {
+    if (kind == DOUBLES)
+      return doubles[Objects.checkIndex(idx, size)];
+
     Object val = get(idx);
 
     if (val instanceof Double)
       return (Double)val;
+    else if (val instanceof Long)
+      return ((Long) val).doubleValue();
     return null;
   }
 
@@ -105,10 +541,17 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
    * @return the associated value or null.
    */
   public Long getLong(int idx) {
+      if (kind == LONGS)
+          return longs[Objects.checkIndex(idx, size)];
+
       Object val = get(idx);
 
       if (val instanceof Long)
           return (Long) val;
+      else if (val instanceof Double) {
+          if (Math.floor((Double)val) == (Double) val)
+              return (((Double) val).longValue());
+      }
       return null;
   }
 
@@ -188,7 +631,13 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
             return JSONValType.DOUBLE;
       }
       else if (val instanceof Long)
-        return JSONValType.LONG;
+      {
+          // Check if the integer fits in an int.
+          if ((Long) val == ((Long) val).intValue())
+            return JSONValType.INT;
+          else
+            return JSONValType.LONG;
+      }
       else if (val instanceof String)
         return JSONValType.STRING;
       else if (val instanceof Boolean)
@@ -208,23 +657,7 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
     */
    public String toJSON()
    {
-     String output = "[";
-     for (int i = 0; i < size(); i++)
-     {
-       Object val = get(i);
-       if (val instanceof String)
-        output += "\"" + val + "\",";
-       else if (val instanceof JSONArray)
-        output += ((JSONArray)val).toJSON() + ",";
-       else if (val instanceof JSONObject)
-        output += ((JSONObject)val).toJSON() + ",";
-       else
-        output += val + ",";
-     }
-     if (size() > 0)
-      output = output.substring(0, output.length() - 1);
-     output += "]";
-     return output;
+     return JsonWriter.toJSON(this);
    }
 
    /**
@@ -233,76 +666,7 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
     */
    public String getFormattedJSON()
    {
-     String rawJSON = toJSON();
-     int indentCnt = 0;
-     Token tok;
-     Lexer lex = new Lexer(rawJSON);
-     String formattedJSON = "";
-
-     tok = lex.nextToken();
-     while (tok.getType() != TokenType.EOF)
-     {
-       switch (tok.getType())
-       {
-         case NUMBER:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += tok.getValue();
-         break;
-         case STRING:
-          if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-            formattedJSON += buildIndentString(indentCnt);
-          formattedJSON += "\"" + tok.getValue() + "\"";
-         break;
-         case LBRACE:
-         case LBRACKET:
-           if (formattedJSON == "" ||
-               formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-               formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += tok.getValue() + "\n";
-           indentCnt++;
-         break;
-         case RBRACE:
-         case RBRACKET:
-            if (indentCnt > 0)
-              indentCnt--;
-            if (formattedJSON.charAt(formattedJSON.length() -1) != '\n')
-              formattedJSON += "\n";
-            formattedJSON += buildIndentString(indentCnt) +
-               tok.getValue() + "\n";
-         break;
-         case COMMA:
-            if (formattedJSON.charAt(formattedJSON.length() - 2) == ']' ||
-                formattedJSON.charAt(formattedJSON.length() - 2) == '}')
-                formattedJSON = formattedJSON.stripTrailing();
-            formattedJSON +=",\n";
-         break;
-         case COLON:
-            formattedJSON += " : ";
-         break;
-         case TRUE:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "true";
-         break;
-         case FALSE:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "false";
-         break;
-         case NULL:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "null";
-         break;
-         case EOF:
-         case UNKNOWN:
-            /* This should never happen. */
-         break;
-       }
-       tok = lex.nextToken();
-     }
-     return formattedJSON;
+     return JsonWriter.toFormattedJSON(this);
    }
 
    /**
@@ -325,17 +689,259 @@ public final class JSONArray extends ArrayList<Object> implements JSONType
      return false;
    }
 
+   /*************************************************
+    *
+    * Private Methods
+    *
+    *************************************************/
+
+   /**
+    * Throws an exception if the array is frozen.
+    * @throws UnsupportedOperationException if the array is frozen.
+    */
+   private void checkNotFrozen()
+   {
+     if (frozen)
+       throw new UnsupportedOperationException("The JSON array is frozen.");
+   }
+
+   /**
+    * Writes the array as its frozen flag, the number of elements, and then
+    * each element.
+    * @param out the stream to write to.
+    * @throws IOException if the array can not be written.
+    */
+   private void writeObject(ObjectOutputStream out) throws IOException
+   {
+     out.defaultWriteObject();
+     out.writeInt(size);
+     for (int i = 0; i < size; i++)
+       out.writeObject(get(i));
+   }
+
+   /**
+    * Reads an array written by {@link #writeObject(ObjectOutputStream)}.
+    * @param in the stream to read from.
+    * @throws IOException if the array can not be read.
+    * @throws ClassNotFoundException if the class of an element is unknown.
+    */
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+   {
+     in.defaultReadObject();
+     boolean wasFrozen = frozen;
+     int count = in.readInt();
+
+     if (count < 0)
+       throw new InvalidObjectException("Negative element count.");
+
+     frozen = false;
+     kind = NONE;
+     reserved = count;
+     for (int i = 0; i < count; i++)
+       add(in.readObject());
+     if (wasFrozen)
+       freeze();
+   }
+
+   /**
+    * Computes the hash code of the array as specified by {@code List}.
+    * @return the hash code.
+    */
+   private int computeHash()
+   {
+     int h = 1;
+
+     for (int i = 0; i < size; i++)
+     {
+       if (kind == LONGS)
+         h = 31 * h + Long.hashCode(longs[i]);
+       else if (kind == DOUBLES && integral == null)
+         h = 31 * h + Double.hashCode(doubles[i]);
+       else
+         h = 31 * h + Objects.hashCode(get(i));
+     }
+     return h;
+   }
+
+   /**
+    * Makes sure the storage in use can hold {@code val}, switching to
+    * object storage if it can not.
+    * @param val the element about to be stored.
+    */
+   private void store(Object val)
+   {
+     if (kind == NONE)
+     {
+       if (val instanceof Long)
+         kind = LONGS;
+       else if (val instanceof Double)
+         kind = DOUBLES;
+       else
+         kind = OBJECTS;
+     }
+     else if (kind == LONGS && val instanceof Double && longsExact())
+     {
+       // Widen to doubles, flagging every existing element as a Long.
+       int cap = longs.length;
+       doubles = new double[cap];
+       integral = new boolean[cap];
+       for (int i = 0; i < size; i++)
+         doubles[i] = longs[i];
+       Arrays.fill(integral, 0, size, true);
+       longs = null;
+       kind = DOUBLES;
+     }
+     else if ((kind == LONGS && !(val instanceof Long)) ||
+         (kind == DOUBLES && !(val instanceof Double) && !isExact(val)))
+     {
+       Object[] res = new Object[Math.max(capacity(), MIN_CAPACITY)];
+       for (int i = 0; i < size; i++)
+         res[i] = get(i);
+       objs = res;
+       longs = null;
+       doubles = null;
+       integral = null;
+       kind = OBJECTS;
+     }
+   }
+
    /**
-    * Helper method to create an indent string for pretty printing.
-    * @param cnt the number of indents to make.
-    * @return a string representing the indent.
+    * Determines if {@code d} is an integer a long holds exactly. Infinities,
+    * NaN and values of 2^63 or more are not.
+    * @param d the value.
+    * @return {@code true} if the value is a long; otherwise, {@code false}.
     */
-   private String buildIndentString(int cnt)
+   private static boolean isLong(double d)
    {
-     String indent = "";
-     for (int i = 0; i < cnt; i++)
-      indent = indent + "   ";
-     return indent;
+     return d < 0x1p63 && (double) (long) d == d;
+   }
+
+   /**
+    * Determines if every element of the long storage can be held exactly
+    * by a double.
+    * @return {@code true} if every element fits; otherwise, {@code false}.
+    */
+   private boolean longsExact()
+   {
+     for (int i = 0; i < size; i++)
+       if (longs[i] < -MAX_EXACT || longs[i] > MAX_EXACT)
+         return false;
+     return true;
+   }
+
+   /**
+    * Determines if {@code val} is a {@code Long} a double can hold exactly.
+    * @param val the value.
+    * @return {@code true} if the value fits; otherwise, {@code false}.
+    */
+   private static boolean isExact(Object val)
+   {
+     return val instanceof Long && (Long) val >= -MAX_EXACT && (Long) val <= MAX_EXACT;
+   }
+
+   /**
+    * Stores {@code val} at index {@code idx} of the storage in use.
+    * @param idx the index.
+    * @param val the element.
+    */
+   private void put(int idx, Object val)
+   {
+     switch (kind)
+     {
+       case LONGS:
+         longs[idx] = (Long) val;
+         break;
+       case DOUBLES:
+         if (val instanceof Long)
+         {
+           if (integral == null)
+             integral = new boolean[doubles.length];
+           doubles[idx] = (Long) val;
+           integral[idx] = true;
+         }
+         else
+         {
+           doubles[idx] = (Double) val;
+           if (integral != null)
+             integral[idx] = false;
+         }
+         break;
+       default:
+         objs[idx] = val;
+         break;
+     }
    }
 
+   /**
+    * Moves {@code len} elements of the storage in use.
+    * @param from the index of the first element to move.
+    * @param to the index to move the first element to.
+    * @param len the number of elements to move.
+    */
+   private void shift(int from, int to, int len)
+   {
+     switch (kind)
+     {
+       case LONGS:
+         System.arraycopy(longs, from, longs, to, len);
+         break;
+       case DOUBLES:
+         System.arraycopy(doubles, from, doubles, to, len);
+         if (integral != null)
+           System.arraycopy(integral, from, integral, to, len);
+         break;
+       default:
+         System.arraycopy(objs, from, objs, to, len);
+         break;
+     }
+   }
+
+   /**
+    * Gets the capacity of the storage in use.
+    * @return the number of elements that fit without growing.
+    */
+   private int capacity()
+   {
+     switch (kind)
+     {
+       case LONGS:
+         return (longs == null) ? 0 : longs.length;
+       case DOUBLES:
+         return (doubles == null) ? 0 : doubles.length;
+       case OBJECTS:
+         return (objs == null) ? 0 : objs.length;
+       default:
+         return 0;
+     }
+   }
+
+   /**
+    * Grows the storage in use to hold at least {@code min} elements.
+    * @param min the number of elements needed.
+    */
+   private void grow(int min)
+   {
+     int cap = capacity();
+
+     if (min <= cap)
+       return;
+
+     if (cap == 0)
+       min = Math.max(min, reserved);
+     cap = Math.max(Math.max(min, MIN_CAPACITY), cap + (cap >> 1));
+     switch (kind)
+     {
+       case LONGS:
+         longs = (longs == null) ? new long[cap] : Arrays.copyOf(longs, cap);
+         break;
+       case DOUBLES:
+         doubles = (doubles == null) ? new double[cap] : Arrays.copyOf(doubles, cap);
+         if (integral != null)
+           integral = Arrays.copyOf(integral, cap);
+         break;
+       default:
+         objs = (objs == null) ? new Object[cap] : Arrays.copyOf(objs, cap);
+         break;
+     }
+   }
 }
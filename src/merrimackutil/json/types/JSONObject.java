@@ -16,26 +16,68 @@
  */
 package merrimackutil.json.types;
 
-import merrimackutil.json.lexer.Lexer;
-import merrimackutil.json.lexer.Token;
-import merrimackutil.json.lexer.TokenType;
+import merrimackutil.json.JsonWriter;
 
+import java.io.IOException;
 import java.io.InvalidObjectException;
-import java.util.HashMap;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
- * This class represents a JSON object.
+ * This class represents a JSON object. The members are kept in insertion
+ * order in a pair of parallel arrays, one of keys and one of values. Small
+ * objects, which are the common case, are searched linearly; once an
+ * object grows past a handful of members an open addressing hash index
+ * over the arrays is built. This uses far less memory than a hash map,
+ * which needs a table and a node per member.
+ * <p>
+ * An object may be frozen with {@link #freeze()}, after which it and every
+ * object and array nested in it can no longer be changed and may be
+ * shared by any number of threads without copying or locking. Freezing
+ * does not publish the object safely, though; see {@link #freeze()}.
+ * <p>
+ * Objects are {@code Serializable} and {@code Cloneable}. They are
+ * serialized as a count followed by each key and value, and a clone is a
+ * deep copy.
+ * <p>
+ * Before version 2.0 this class extended {@code HashMap}; code that held
+ * it as one should use {@code Map} instead.
  */
-public final class JSONObject extends HashMap<String, Object> implements JSONType
+public final class JSONObject extends AbstractMap<String, Object>
+    implements JSONType, Serializable, Cloneable
 {
+  private static final long serialVersionUID = 1L;
+  private static final int LINEAR_LIMIT = 8;      // Largest object searched linearly.
+  private static final int MIN_CAPACITY = 4;      // Smallest non-empty capacity.
+  private static final String[] NO_KEYS = new String[0];
+  private static final Object[] NO_VALS = new Object[0];
+
+  private transient String[] keys;      // The keys in insertion order.
+  private transient Object[] vals;      // The value of each key.
+  private transient int size;           // The number of members.
+  private transient int[] index;        // Hash slots holding a member position + 1, null when small.
+  private transient Set<Map.Entry<String, Object>> entries;   // The entry set view.
+  private boolean frozen;               // True once the object can no longer be changed.
+  private transient int hash;           // The hash code, computed when frozen.
+
   /**
    * Constructs a new JSON class.
    */
   public JSONObject()
   {
-    super();
+    keys = NO_KEYS;
+    vals = NO_VALS;
+    size = 0;
+    index = null;
   }
 
   /**
@@ -46,9 +88,293 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
    */
   public JSONObject(final Map<String, ?> map)
   {
-    super(map);
+    this();
+    grow(map.size());
+    for (Map.Entry<String, ?> ent : map.entrySet())
+      put(ent.getKey(), ent.getValue());
+  }
+
+  /**
+   * Gets the number of members in the object.
+   * @return the number of members.
+   */
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Determines if the object has a member named {@code key}.
+   * @param key the key to look for.
+   * @return {@code true} if the key is present; otherwise, {@code false}.
+   */
+  @Override
+  public boolean containsKey(Object key)
+  {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Determines if some member of the object has the value {@code value}.
+   * @param value the value to look for.
+   * @return {@code true} if the value is present; otherwise, {@code false}.
+   */
+  @Override
+  public boolean containsValue(Object value)
+  {
+    for (int i = 0; i < size; i++)
+      if (value == null ? vals[i] == null : value.equals(vals[i]))
+        return true;
+    return false;
+  }
+
+  /**
+   * Gets the value associated with the key.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null if there is none.
+   */
+  @Override
+  public Object get(Object key)
+  {
+    int pos = find(key);
+
+    return (pos < 0) ? null : vals[pos];
+  }
+
+  /**
+   * Gets the value associated with the key, or {@code def} if the key is
+   * not present.
+   * @param key the key to find the associated value of.
+   * @param def the value to return if the key is not present.
+   * @return the associated value or {@code def}.
+   */
+  @Override
+  public Object getOrDefault(Object key, Object def)
+  {
+    int pos = find(key);
+
+    return (pos < 0) ? def : vals[pos];
+  }
+
+  /**
+   * Associates {@code value} with {@code key}. A new key is added after
+   * all of the existing keys.
+   * @param key the key.
+   * @param value the value.
+   * @return the value previously associated with the key or null.
+   */
+  @Override
+  public Object put(String key, Object value)
+  {
+    checkNotFrozen();
+    int pos = find(key);
+
+    if (pos >= 0)
+    {
+      Object old = vals[pos];
+      vals[pos] = value;
+      return old;
+    }
+
+    if (size == keys.length)
+      grow(size + 1);
+    keys[size] = key;
+    vals[size] = value;
+    size++;
+
+    if (index != null)
+      addToIndex(size - 1);
+    else if (size > LINEAR_LIMIT)
+      buildIndex();
+    return null;
+  }
+
+  /**
+   * Removes the member named {@code key}. The remaining members keep
+   * their order.
+   * @param key the key to remove.
+   * @return the value that was associated with the key or null.
+   */
+  @Override
+  public Object remove(Object key)
+  {
+    checkNotFrozen();
+    int pos = find(key);
+
+    if (pos < 0)
+      return null;
+
+    Object old = vals[pos];
+    removeAt(pos);
+    return old;
+  }
+
+  /**
+   * Removes all members of the object.
+   */
+  @Override
+  public void clear()
+  {
+    checkNotFrozen();
+    Arrays.fill(keys, 0, size, null);
+    Arrays.fill(vals, 0, size, null);
+    size = 0;
+    index = null;
+  }
+
+  /**
+   * Calls {@code action} on each member in insertion order.
+   * @param action the action to perform.
+   */
+  @Override
+  public void forEach(BiConsumer<? super String, ? super Object> action)
+  {
+    for (int i = 0; i < size; i++)
+      action.accept(keys[i], vals[i]);
+  }
+
+  /**
+   * Gets a set view of the members of the object. The set iterates in
+   * insertion order and supports removal.
+   * @return the members of the object.
+   */
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet()
+  {
+    if (entries == null)
+      entries = new EntrySet();
+    return entries;
+  }
+
+  /**
+   * Computes the hash code of the object. The hash code of a frozen object
+   * is computed once, when it is frozen.
+   * @return the hash code.
+   */
+  @Override
+  public int hashCode()
+  {
+    if (frozen)
+      return hash;
+    return computeHash();
+  }
+
+  /**
+   * Determines if {@code obj} is a map with the same members as this
+   * object.
+   * @param obj the object to compare with.
+   * @return {@code true} if the members are the same; otherwise, {@code false}.
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (obj instanceof JSONObject && frozen && ((JSONObject) obj).frozen &&
+        hash != ((JSONObject) obj).hash)
+      return false;
+    return super.equals(obj);
+  }
+
+  /**
+   * Freezes the object and every object and array nested in it. A frozen
+   * object can not be changed; any attempt throws an
+   * {@code UnsupportedOperationException}. Its storage is trimmed to size
+   * and its hash code is computed. A frozen object may be read concurrently
+   * by any number of threads.
+   * <p>
+   * Freezing does not provide safe publication. The fields of a frozen
+   * object are not final, so a thread that finds it through a data race,
+   * such as a plain field written by another thread, may see it partly
+   * built. Hand it to other threads once through a volatile or final
+   * field, a lock, or a concurrent collection; after that they need no
+   * further locking.
+   * @return this object.
+   */
+  public JSONObject freeze()
+  {
+    if (frozen)
+      return this;
+
+    for (int i = 0; i < size; i++)
+      freezeValue(vals[i]);
+    if (keys.length != size)
+    {
+      keys = Arrays.copyOf(keys, size);
+      vals = Arrays.copyOf(vals, size);
+      if (index != null)
+        buildIndex();
+    }
+    hash = computeHash();
+    frozen = true;
+    return this;
+  }
+
+  /**
+   * Makes a deep copy of the object. Nested objects and arrays are cloned
+   * as well, and the copy is never frozen, even if this object is.
+   * @return the copy.
+   */
+  @Override
+  public JSONObject clone()
+  {
+    JSONObject res;
+
+    try
+    {
+      res = (JSONObject) super.clone();
+    }
+    catch (CloneNotSupportedException ex)
+    {
+      // JSONObject is Cloneable.
+      throw new InternalError(ex);
+    }
+
+    res.keys = Arrays.copyOf(keys, keys.length);
+    res.vals = new Object[vals.length];
+    for (int i = 0; i < size; i++)
+      res.vals[i] = cloneValue(vals[i]);
+    res.index = (index == null) ? null : index.clone();
+    res.entries = null;
+    res.frozen = false;
+    res.hash = 0;
+    return res;
   }
 
+  /**
+   * Determines if the object is frozen.
+   * @return {@code true} if the object is frozen; otherwise, {@code false}.
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Gets a frozen copy of this frozen object with {@code key} associated
+   * with {@code value}. The copy shares every other value with this
+   * object, so only the member arrays are copied. If {@code value} is an
+   * object or array, it is frozen.
+   * @param key the key.
+   * @param value the value.
+   * @return the updated copy.
+   * @throws IllegalStateException if this object is not frozen.
+   */
+  public JSONObject with(String key, Object value)
+  {
+    if (!frozen)
+      throw new IllegalStateException("Only a frozen object can be updated with with.");
+
+    JSONObject res = new JSONObject();
+    res.keys = Arrays.copyOf(keys, size + 1);
+    res.vals = Arrays.copyOf(vals, size + 1);
+    res.size = size;
+    if (index != null)
+      res.buildIndex();
+    res.put(key, value);
+    return res.freeze();
+  }
+
+
   /**
    * Gets a string associated with the key. If the
    * key is not associated with a string, null is
@@ -76,7 +402,13 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
   {
     Object val = get(key);
 
-    if (val instanceof Double)
+    if (val instanceof Long)
+    {
+      // Check if the integer fits in an int.
+      if ((Long) val == ((Long) val).intValue())
+        return ((Long) val).intValue();
+    }
+    else if (val instanceof Double)
     {
       // Check if this is an integer.
       if (Math.floor((Double)val) == (Double) val)
@@ -98,6 +430,8 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
 
     if (val instanceof Double)
       return (Double)val;
+    else if (val instanceof Long)
+      return ((Long) val).doubleValue();
     return null;
   }
 
@@ -199,7 +533,13 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
             return JSONValType.DOUBLE;
       }
       else if (val instanceof Long)
-        return JSONValType.LONG;
+      {
+          // Check if the integer fits in an int.
+          if ((Long) val == ((Long) val).intValue())
+            return JSONValType.INT;
+          else
+            return JSONValType.LONG;
+      }
       else if (val instanceof String)
         return JSONValType.STRING;
       else if (val instanceof Boolean)
@@ -219,30 +559,7 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
     */
    public String toJSON()
    {
-
-     Set<String> keySet = keySet();
-     String output = "{";
-     for (String key : keySet)
-     {
-       Object val = get(key);
-       output += "\"" + key + "\":";
-       if (val instanceof String)
-        output += "\"" + val + "\",";
-       else if (val instanceof JSONArray)
-        output += ((JSONArray)val).toJSON() + ",";
-       else if (val instanceof JSONObject)
-        output += ((JSONObject)val).toJSON()+ ",";
-       else
-        output += val + ",";
-     }
-
-     // Only trim the trailing comma if there is one.
-     if (keySet.size() > 0)
-      output = output.substring(0, output.length() - 1);
-
-     // Add the closing brace.
-     output += "}";
-     return output;
+     return JsonWriter.toJSON(this);
    }
 
    /**
@@ -251,76 +568,7 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
     */
    public String getFormattedJSON()
    {
-     String rawJSON = toJSON();
-     int indentCnt = 0;
-     Token tok;
-     Lexer lex = new Lexer(rawJSON);
-     String formattedJSON = "";
-
-     tok = lex.nextToken();
-     while (tok.getType() != TokenType.EOF)
-     {
-       switch (tok.getType())
-       {
-         case NUMBER:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += tok.getValue();
-         break;
-         case STRING:
-          if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-            formattedJSON += buildIndentString(indentCnt);
-          formattedJSON += "\"" + tok.getValue() + "\"";
-         break;
-         case LBRACE:
-         case LBRACKET:
-           if (formattedJSON == "" ||
-               formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-               formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += tok.getValue() + "\n";
-           indentCnt++;
-         break;
-         case RBRACE:
-         case RBRACKET:
-            if (indentCnt > 0)
-              indentCnt--;
-            if (formattedJSON.charAt(formattedJSON.length() -1) != '\n')
-              formattedJSON += "\n";
-            formattedJSON += buildIndentString(indentCnt) +
-               tok.getValue() + "\n";
-         break;
-         case COMMA:
-            if (formattedJSON.charAt(formattedJSON.length() - 2) == ']' ||
-                formattedJSON.charAt(formattedJSON.length() - 2) == '}')
-                formattedJSON = formattedJSON.stripTrailing();
-            formattedJSON +=",\n";
-         break;
-         case COLON:
-            formattedJSON += " : ";
-         break;
-         case TRUE:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "true";
-         break;
-         case FALSE:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "false";
-         break;
-         case NULL:
-           if (formattedJSON.charAt(formattedJSON.length() -1) == '\n')
-             formattedJSON += buildIndentString(indentCnt);
-           formattedJSON += "null";
-         break;
-         case EOF:
-         case UNKNOWN:
-          /* This should never happen. */
-         break;
-       }
-       tok = lex.nextToken();
-     }
-     return formattedJSON;
+     return JsonWriter.toFormattedJSON(this);
    }
 
    /**
@@ -365,17 +613,300 @@ public final class JSONObject extends HashMap<String, Object> implements JSONTyp
      
    }
 
+   /*************************************************
+    *
+    * Private Methods
+    *
+    *************************************************/
+
+   /**
+    * Finds the position of the member named {@code key}.
+    * @param key the key to find.
+    * @return the position of the member or -1 if there is none.
+    */
+   private int find(Object key)
+   {
+     if (index == null)
+     {
+       for (int i = 0; i < size; i++)
+         if (keys[i] == key || (key != null && key.equals(keys[i])))
+           return i;
+       return -1;
+     }
+
+     int mask = index.length - 1;
+     int slot = hash(key) & mask;
+     int ent;
+     while ((ent = index[slot]) != 0)
+     {
+       String k = keys[ent - 1];
+       if (k == key || (key != null && key.equals(k)))
+         return ent - 1;
+       slot = (slot + 1) & mask;
+     }
+     return -1;
+   }
+
+   /**
+    * Removes the member at position {@code pos}, shifting the later
+    * members down.
+    * @param pos the position of the member.
+    */
+   private void removeAt(int pos)
+   {
+     checkNotFrozen();
+     int moved = size - pos - 1;
+
+     System.arraycopy(keys, pos + 1, keys, pos, moved);
+     System.arraycopy(vals, pos + 1, vals, pos, moved);
+     size--;
+     keys[size] = null;
+     vals[size] = null;
+
+     // Every later member changed position, so the index is rebuilt.
+     if (index != null)
+     {
+       if (size > LINEAR_LIMIT)
+         buildIndex();
+       else
+         index = null;
+     }
+   }
+
+   /**
+    * Grows the arrays to hold at least {@code min} members.
+    * @param min the number of members needed.
+    */
+   private void grow(int min)
+   {
+     if (min <= keys.length)
+       return;
+
+     int cap = Math.max(Math.max(min, MIN_CAPACITY), keys.length + (keys.length >> 1));
+     keys = Arrays.copyOf(keys, cap);
+     vals = Arrays.copyOf(vals, cap);
+     if (index != null)
+       buildIndex();
+   }
+
+   /**
+    * Builds the hash index over the members. The index has at least
+    * twice as many slots as the arrays, so it is never more than half
+    * full.
+    */
+   private void buildIndex()
+   {
+     index = new int[Integer.highestOneBit(keys.length * 2 - 1) << 1];
+     for (int i = 0; i < size; i++)
+       addToIndex(i);
+   }
+
+   /**
+    * Adds the member at position {@code pos} to the hash index.
+    * @param pos the position of the member.
+    */
+   private void addToIndex(int pos)
+   {
+     int mask = index.length - 1;
+     int slot = hash(keys[pos]) & mask;
+
+     while (index[slot] != 0)
+       slot = (slot + 1) & mask;
+     index[slot] = pos + 1;
+   }
+
+   /**
+    * Throws an exception if the object is frozen.
+    * @throws UnsupportedOperationException if the object is frozen.
+    */
+   private void checkNotFrozen()
+   {
+     if (frozen)
+       throw new UnsupportedOperationException("The JSON object is frozen.");
+   }
+
+   /**
+    * Computes the hash code of the object as specified by {@code Map}.
+    * @return the hash code.
+    */
+   private int computeHash()
+   {
+     int h = 0;
+
+     for (int i = 0; i < size; i++)
+       h += (keys[i] == null ? 0 : keys[i].hashCode()) ^ (vals[i] == null ? 0 : vals[i].hashCode());
+     return h;
+   }
+
+   /**
+    * Writes the object as its frozen flag, the number of members, and then
+    * each key and value.
+    * @param out the stream to write to.
+    * @throws IOException if the object can not be written.
+    */
+   private void writeObject(ObjectOutputStream out) throws IOException
+   {
+     out.defaultWriteObject();
+     out.writeInt(size);
+     for (int i = 0; i < size; i++)
+     {
+       out.writeObject(keys[i]);
+       out.writeObject(vals[i]);
+     }
+   }
+
    /**
-    * Helper method to create an indent string for pretty printing.
-    * @param cnt the number of indents to make.
-    * @return a string representing the indent.
+    * Reads an object written by {@link #writeObject(ObjectOutputStream)}.
+    * @param in the stream to read from.
+    * @throws IOException if the object can not be read.
+    * @throws ClassNotFoundException if the class of a value is unknown.
     */
-   private String buildIndentString(int cnt)
+   private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
    {
-     String indent = "";
-     for (int i = 0; i < cnt; i++)
-      indent = indent + "   ";
-     return indent;
+     in.defaultReadObject();
+     boolean wasFrozen = frozen;
+     int count = in.readInt();
+
+     if (count < 0)
+       throw new InvalidObjectException("Negative member count.");
+
+     keys = NO_KEYS;
+     vals = NO_VALS;
+     frozen = false;
+     grow(count);
+     for (int i = 0; i < count; i++)
+     {
+       Object key = in.readObject();
+       if (key != null && !(key instanceof String))
+         throw new InvalidObjectException("Member name is not a string.");
+       put((String) key, in.readObject());
+     }
+     if (wasFrozen)
+       freeze();
+   }
+
+   /**
+    * Clones {@code val} if it is an object or array.
+    * @param val the value.
+    * @return the clone or {@code val} itself.
+    */
+   static Object cloneValue(Object val)
+   {
+     if (val instanceof JSONObject)
+       return ((JSONObject) val).clone();
+     else if (val instanceof JSONArray)
+       return ((JSONArray) val).clone();
+     return val;
+   }
+
+   /**
+    * Freezes {@code val} if it is an object or array.
+    * @param val the value.
+    */
+   private static void freezeValue(Object val)
+   {
+     if (val instanceof JSONObject)
+       ((JSONObject) val).freeze();
+     else if (val instanceof JSONArray)
+       ((JSONArray) val).freeze();
+   }
+
+   /**
+    * Computes the hash of a key, spreading the high bits down.
+    * @param key the key.
+    * @return the hash.
+    */
+   private static int hash(Object key)
+   {
+     int h = (key == null) ? 0 : key.hashCode();
+
+     return h ^ (h >>> 16);
+   }
+
+   /**
+    * The entry set view of the object.
+    */
+   private final class EntrySet extends AbstractSet<Map.Entry<String, Object>>
+   {
+     @Override
+     public int size()
+     {
+       return size;
+     }
+
+     @Override
+     public void clear()
+     {
+       JSONObject.this.clear();
+     }
+
+     @Override
+     public Iterator<Map.Entry<String, Object>> iterator()
+     {
+       return new EntryIterator();
+     }
    }
 
+   /**
+    * Iterates over the members in insertion order.
+    */
+   private final class EntryIterator implements Iterator<Map.Entry<String, Object>>
+   {
+     private int next = 0;      // The position of the next member.
+     private int last = -1;     // The position of the last member returned.
+
+     @Override
+     public boolean hasNext()
+     {
+       return next < size;
+     }
+
+     @Override
+     public Map.Entry<String, Object> next()
+     {
+       if (next >= size)
+         throw new NoSuchElementException();
+       last = next++;
+       return new Member(last);
+     }
+
+     @Override
+     public void remove()
+     {
+       if (last < 0)
+         throw new IllegalStateException();
+       removeAt(last);
+       next = last;
+       last = -1;
+     }
+   }
+
+   /**
+    * A member of the object. Setting the value of the entry sets the value
+    * in the object.
+    */
+   private final class Member extends AbstractMap.SimpleEntry<String, Object>
+   {
+     private static final long serialVersionUID = 1L;
+
+     private int pos;     // The position of the member when last seen.
+
+     Member(int pos)
+     {
+       super(keys[pos], vals[pos]);
+       this.pos = pos;
+     }
+
+     @Override
+     public Object setValue(Object value)
+     {
+       checkNotFrozen();
+       // The member moves if an earlier member is removed.
+       if (pos >= size || keys[pos] != getKey())
+         pos = find(getKey());
+       if (pos >= 0)
+         vals[pos] = value;
+       return super.setValue(value);
+     }
+   }
 }
@@ -16,6 +16,10 @@
  */
  package merrimackutil.json.types;
 
+ import java.io.IOException;
+ import java.io.Writer;
+ import merrimackutil.json.JsonWriter;
+
  /**
   * This class represents a generic JSON type.
   */
@@ -27,6 +31,19 @@
      */
      public String toJSON();
 
+   /**
+    * Writes the JSON form of the type to {@code out} without building
+    * it as a string first.
+    * @param out the writer to write to.
+    * @throws IOException if the output can not be written.
+    */
+   default public void writeTo(Writer out) throws IOException
+   {
+     JsonWriter json = new JsonWriter(out);
+     json.value(this);
+     json.flush();
+   }
+
    /**
     * Gets a formatted JSON string representing the array.
     * @return a formatted JSON string.
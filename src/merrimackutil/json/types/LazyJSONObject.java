@@ -0,0 +1,595 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package merrimackutil.json.types;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.lexer.StructuralIndex;
+import merrimackutil.json.parser.JSONParser;
+
+/**
+ * This class represents a JSON object that is parsed on access. The object
+ * is a view of a document through a {@code StructuralIndex}. The offsets
+ * of the keys and values of the object are found the first time it is
+ * accessed, and a value is only parsed when it is asked for. Nested
+ * objects are returned as lazy views of their own.
+ * <p>
+ * As the document is only checked as it is read, the accessors throw an
+ * {@code InvalidJSONException} if the part of the document they read is
+ * not valid JSON.
+ * @author Zach Kissel
+ */
+public final class LazyJSONObject implements JSONType
+{
+  private static final int STRIDE = 5;  // The number of ints describing a member.
+
+  private StructuralIndex index;  // The index of the document.
+  private int open;               // The index of the opening brace of the object.
+  private int[] members;          // Key start and end, value start and end, and the
+                                  // index of the opening bracket of a nested value
+                                  // for each member. Null until first access.
+  private int size;               // The number of members.
+
+  /**
+   * Constructs a view of the object whose opening brace is structural
+   * character {@code open} of {@code index}.
+   * @param index the index of the document.
+   * @param open the index of the opening brace of the object.
+   */
+  public LazyJSONObject(StructuralIndex index, int open)
+  {
+    this.index = index;
+    this.open = open;
+    members = null;
+  }
+
+  /**
+   * Builds a view of the object that makes up the whole of the
+   * document indexed by {@code index}.
+   * @param index the index of the document.
+   * @return the object.
+   * @throws InvalidJSONException if the document is not a single object.
+   */
+  public static LazyJSONObject of(StructuralIndex index) throws InvalidJSONException
+  {
+    if (index.size() == 0 || index.getChar(0) != '{' ||
+        !index.isBlank(index.getStart(), index.getPosition(0)))
+      throw new InvalidJSONException("Invalid JSON object, { expected.");
+
+    int close = index.getMatch(0);
+    if (close != index.size() - 1 || !index.isBlank(index.getPosition(close) + 1, index.getEnd()))
+      throw new InvalidJSONException("Invalid JSON object, EOF expected.");
+    return new LazyJSONObject(index, 0);
+  }
+
+  /**
+   * Gets the number of members in the object.
+   * @return the number of members.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  public int size() throws InvalidJSONException
+  {
+    findMembers();
+    return size;
+  }
+
+  /**
+   * Determines if the object has key {@code key}.
+   * @param key the key to look for.
+   * @return true if the object has the key; otherwise, false.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  public boolean containsKey(String key) throws InvalidJSONException
+  {
+    return find(key) != -1;
+  }
+
+  /**
+   * Gets the keys of the object.
+   * @return the keys in the order they appear in the document.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  public Set<String> keySet() throws InvalidJSONException
+  {
+    Set<String> keys = new LinkedHashSet<>();
+
+    findMembers();
+    for (int m = 0; m < size; m++)
+      keys.add(keyAt(m));
+    return keys;
+  }
+
+  /**
+   * Gets the value associated with the key, fully parsed.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Object get(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1)
+      return null;
+    return valueAt(m);
+  }
+
+  /**
+   * Gets a string associated with the key. If the
+   * key is not associated with a string, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public String getString(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1 || firstChar(m) != '\"')
+      return null;
+    return (String) valueAt(m);
+  }
+
+  /**
+   * Gets an integer associated with the key. If the
+   * key is not associated with an Integer, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Integer getInt(String key) throws InvalidJSONException
+  {
+    Object val = getNumber(key);
+
+    if (val instanceof Long)
+    {
+      // Check if the integer fits in an int.
+      if ((Long) val == ((Long) val).intValue())
+        return ((Long) val).intValue();
+    }
+    else if (val instanceof Double)
+    {
+      // Check if this is an integer.
+      if (Math.floor((Double)val) == (Double) val)
+        return ((Double) val).intValue();
+    }
+    return null;
+  }
+
+  /**
+   * Gets double associated with the key. If the
+   * key is not associated with a Double, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Double getDouble(String key) throws InvalidJSONException
+  {
+    Object val = getNumber(key);
+
+    if (val instanceof Double)
+      return (Double) val;
+    else if (val instanceof Long)
+      return ((Long) val).doubleValue();
+    return null;
+  }
+
+  /**
+   * Gets long associated with the key. If the
+   * key is not associated with a Long, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Long getLong(String key) throws InvalidJSONException
+  {
+    Object val = getNumber(key);
+
+    if (val instanceof Long)
+      return (Long) val;
+    else if (val instanceof Double)
+    {
+      if (Math.floor((Double)val) == (Double) val)
+        return ((Double) val).longValue();
+    }
+    return null;
+  }
+
+  /**
+   * Gets Boolean associated with the key. If the
+   * key is not associated with a Boolean, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public Boolean getBoolean(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1 || (firstChar(m) != 't' && firstChar(m) != 'f'))
+      return null;
+    return (Boolean) valueAt(m);
+  }
+
+  /**
+   * Gets the JSONArray associated with the key. The array is parsed in
+   * full. If the key is not associated with a JSONArray, null is
+   * returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public JSONArray getArray(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1 || firstChar(m) != '[')
+      return null;
+    return (JSONArray) valueAt(m);
+  }
+
+  /**
+   * Gets a lazy view of the object associated with the key. If the
+   * key is not associated with an object, null is returned.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public LazyJSONObject getObject(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1 || firstChar(m) != '{')
+      return null;
+    return new LazyJSONObject(index, members[m * STRIDE + 4]);
+  }
+
+  /**
+   * Determines if {@code key} is a null value.
+   * @param key the key to check.
+   * @return {@code true} if the {@code key}'s value is null; otherwise, {@code false}.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public boolean isNull(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1)
+      return true;
+    return firstChar(m) == 'n' && valueAt(m) == null;
+  }
+
+  /**
+   * Gets the type of value associated with key {@code key}.
+   * @param key the key to get the value type of.
+   * @return the value type associated with {@code key}.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  public JSONValType getValueType(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1)
+      return JSONValType.NULL;
+
+    switch (firstChar(m))
+    {
+      case '{':
+        return JSONValType.OBJECT;
+      case '[':
+        return JSONValType.ARRAY;
+      case '\"':
+        return JSONValType.STRING;
+      case 't':
+      case 'f':
+        return JSONValType.BOOLEAN;
+      case 'n':
+        return JSONValType.NULL;
+      default:
+        Object val = valueAt(m);
+        if (val instanceof Long)
+          return ((Long) val == ((Long) val).intValue()) ? JSONValType.INT : JSONValType.LONG;
+        if (Math.floor((Double) val) == (Double) val)
+          return JSONValType.INT;
+        return JSONValType.DOUBLE;
+    }
+  }
+
+  /**
+   * Parses the whole object.
+   * @return the object fully parsed.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  public JSONObject toJSONObject() throws InvalidJSONException
+  {
+    int from = index.getPosition(open);
+    int to = index.getPosition(index.getMatch(open)) + 1;
+
+    return (JSONObject) parseValue(from, to);
+  }
+
+  /**
+   * Converts the JSON object to a string suitable for
+   * storing in a file. This parses the whole object.
+   * @return A string reprsentation of the object.
+   * @throws IllegalStateException if the object is not valid.
+   */
+  public String toJSON()
+  {
+    return materialize().toJSON();
+  }
+
+  /**
+   * Gets a formatted JSON string representing the object. This parses
+   * the whole object.
+   * @return a formatted JSON string.
+   * @throws IllegalStateException if the object is not valid.
+   */
+  public String getFormattedJSON()
+  {
+    return materialize().getFormattedJSON();
+  }
+
+  /**
+   * Returns {@code true} if the JSON type is an array; otherwise, {@code false}
+   *
+   * @return This method always returns {@code false}.
+   */
+  public boolean isArray()
+  {
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the JSON type is an object; otherwise, {@code false}
+   *
+   * @return This method always returns {@code true}.
+   */
+  public boolean isObject()
+  {
+    return true;
+  }
+
+  /************
+   * Private Methods
+   ************/
+
+  /**
+   * Parses the whole object for the methods that can not throw a
+   * checked exception.
+   * @return the object fully parsed.
+   */
+  private JSONObject materialize()
+  {
+    try
+    {
+      return toJSONObject();
+    }
+    catch (InvalidJSONException ex)
+    {
+      throw new IllegalStateException(ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Gets the numeric value associated with the key.
+   * @param key the key to find the associated value of.
+   * @return the associated value or null if it is not a number.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  private Object getNumber(String key) throws InvalidJSONException
+  {
+    int m = find(key);
+
+    if (m == -1)
+      return null;
+
+    char c = firstChar(m);
+    if (c != '-' && c != '.' && (c < '0' || c > '9'))
+      return null;
+    return valueAt(m);
+  }
+
+  /**
+   * Finds the member with key {@code key}. As with a {@code JSONObject},
+   * the last member wins if a key is repeated.
+   * @param key the key to look for.
+   * @return the member number or -1 if there is no such key.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  private int find(String key) throws InvalidJSONException
+  {
+    char[] buf = index.getBuffer();
+
+    findMembers();
+    for (int m = size - 1; m >= 0; m--)
+    {
+      int ks = members[m * STRIDE];
+      int ke = members[m * STRIDE + 1];
+      boolean escaped = false;
+      boolean same = (ke - ks == key.length());
+
+      for (int i = ks; i < ke; i++)
+      {
+        if (buf[i] == '\\')
+          escaped = true;
+        else if (same && buf[i] != key.charAt(i - ks))
+          same = false;
+      }
+
+      if (escaped ? keyAt(m).equals(key) : same)
+        return m;
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the key of member {@code m}.
+   * @param m the member number.
+   * @return the key.
+   * @throws InvalidJSONException if the key is not valid.
+   */
+  private String keyAt(int m) throws InvalidJSONException
+  {
+    int ks = members[m * STRIDE];
+    int ke = members[m * STRIDE + 1];
+
+    // Include the quotes so that the lexer sees a string token.
+    return (String) parseValue(ks - 1, ke + 1);
+  }
+
+  /**
+   * Parses the value of member {@code m}.
+   * @param m the member number.
+   * @return the value.
+   * @throws InvalidJSONException if the value is not valid.
+   */
+  private Object valueAt(int m) throws InvalidJSONException
+  {
+    return parseValue(members[m * STRIDE + 2], members[m * STRIDE + 3]);
+  }
+
+  /**
+   * Gets the first character of the value of member {@code m}.
+   * @param m the member number.
+   * @return the first character of the value.
+   */
+  private char firstChar(int m)
+  {
+    return index.getBuffer()[members[m * STRIDE + 2]];
+  }
+
+  /**
+   * Parses a single value.
+   * @param from the offset of the first character of the value.
+   * @param to the offset one past the last character of the value.
+   * @return the value.
+   * @throws InvalidJSONException if the text is not a single valid value.
+   */
+  private Object parseValue(int from, int to) throws InvalidJSONException
+  {
+    JSONParser parser = new JSONParser(new Lexer(index.getBuffer(), from, to - from));
+    Object res = parser.parseDirectValue();
+
+    if (parser.hasError())
+      throw new InvalidJSONException("Invalid value.\n" + parser.getErrorLog().trim());
+    return res;
+  }
+
+  /**
+   * Finds the offsets of the keys and values of the object if this has
+   * not been done yet.
+   * @throws InvalidJSONException if the object is not valid.
+   */
+  private void findMembers() throws InvalidJSONException
+  {
+    if (members != null)
+      return;
+
+    char[] buf = index.getBuffer();
+    int close = index.getMatch(open);
+    int[] found = new int[4 * STRIDE];
+    int count = 0;
+    int idx = open;
+
+    // Check to see if we have an empty object.
+    if (open + 1 == close)
+    {
+      if (!index.isBlank(index.getPosition(open) + 1, index.getPosition(close)))
+        throw new InvalidJSONException("Bad class definition -- expected }.");
+      members = found;
+      size = 0;
+      return;
+    }
+
+    while (true)
+    {
+      int colon = idx + 1;
+      if (index.getChar(colon) != ':')
+        throw new InvalidJSONException("Colon expected");
+
+      // The key is between the previous structural character and the colon.
+      int ks = trimStart(index.getPosition(idx) + 1, index.getPosition(colon));
+      int ke = trimEnd(ks, index.getPosition(colon));
+      if (ke - ks < 2 || buf[ks] != '\"' || buf[ke - 1] != '\"')
+        throw new InvalidJSONException("Invalid key " + new String(buf, ks, ke - ks));
+
+      // The value runs to the comma or brace after it.
+      int after = index.skipValue(colon);
+      int vs = trimStart(index.getPosition(colon) + 1, index.getPosition(after));
+      int ve = trimEnd(vs, index.getPosition(after));
+      if (vs == ve)
+        throw new InvalidJSONException("Invalid value.");
+
+      if (count * STRIDE == found.length)
+        found = Arrays.copyOf(found, found.length * 2);
+      found[count * STRIDE] = ks + 1;
+      found[count * STRIDE + 1] = ke - 1;
+      found[count * STRIDE + 2] = vs;
+      found[count * STRIDE + 3] = ve;
+      found[count * STRIDE + 4] = (after == colon + 1) ? -1 : colon + 1;
+      count++;
+
+      if (after == close)
+        break;
+      if (index.getChar(after) != ',')
+        throw new InvalidJSONException("Bad class definition -- expected }.");
+      idx = after;
+    }
+
+    members = found;
+    size = count;
+  }
+
+  /**
+   * Skips leading white space.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @return the offset of the first character that is not white space.
+   */
+  private int trimStart(int from, int to)
+  {
+    char[] buf = index.getBuffer();
+
+    while (from < to && StructuralIndex.isWhitespace(buf[from]))
+      from++;
+    return from;
+  }
+
+  /**
+   * Skips trailing white space.
+   * @param from the offset of the first character.
+   * @param to the offset one past the last character.
+   * @return the offset one past the last character that is not white space.
+   */
+  private int trimEnd(int from, int to)
+  {
+    char[] buf = index.getBuffer();
+
+    while (to > from && StructuralIndex.isWhitespace(buf[to - 1]))
+      to--;
+    return to;
+  }
+}
@@ -70,6 +70,26 @@ public class RealMatrix
                 entries[i][j] = cpy.entries[i][j];
     }
 
+    /**
+     * Constructs a matrix from the rows {@code rows}. The rows are copied,
+     * so later changes to {@code rows} do not affect the matrix.
+     * @param rows the rows of the matrix.
+     * @throws IllegalArgumentException if the rows are not all the same length.
+     */
+    public RealMatrix(double[][] rows) throws IllegalArgumentException
+    {
+        this.numRows = rows.length;
+        this.numCols = (rows.length == 0) ? 0 : rows[0].length;
+
+        entries = new double[numRows][];
+        for (int i = 0; i < numRows; i++)
+        {
+            if (rows[i].length != numCols)
+                throw new IllegalArgumentException("Rows must all be the same length.");
+            entries[i] = Arrays.copyOf(rows[i], numCols);
+        }
+    }
+
     /**
      * This method gets the identity matrix I_n.
      * @param n the dimension of the square matrix.
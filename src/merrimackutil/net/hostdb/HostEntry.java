@@ -16,9 +16,14 @@
  */
 package merrimackutil.net.hostdb;
 
+import merrimackutil.json.InvalidJSONException;
 import merrimackutil.json.JSONSerializable;
+import merrimackutil.json.JsonBinding;
+import merrimackutil.json.JsonReader;
+import merrimackutil.json.JsonWriter;
 import merrimackutil.json.types.JSONType;
 import merrimackutil.json.types.JSONObject;
+import java.io.IOException;
 import java.io.InvalidObjectException;
 
 /**
@@ -31,6 +36,20 @@ public class HostEntry implements JSONSerializable
   private String address;   // Address of the host.
   private int port;         // Port number of the host.
 
+  // Reads and writes host entries without an intermediate JSON object.
+  static final JsonBinding<HostEntry> BINDING = JsonBinding.builder("Host Entry", HostEntry::new)
+      .stringField("host-name", HostEntry::getHostName, (e, v) -> e.hostName = v)
+      .stringField("address", HostEntry::getAddress, (e, v) -> e.address = v)
+      .intField("port", HostEntry::getPort, (e, v) -> e.port = v)
+      .build();
+
+  /**
+   * Constructs an empty host entry to be filled in by the binding.
+   */
+  private HostEntry()
+  {
+  }
+
   /**
    * Construct a host entry from the corresponding JSON object.
    * @param obj a JSON object representing a host entry.
@@ -41,6 +60,19 @@ public class HostEntry implements JSONSerializable
     deserialize(obj);
   }
 
+  /**
+   * Reads a host entry from the stream {@code reader}, without building
+   * a JSON object first.
+   * @param reader the reader positioned at a host entry object.
+   * @return the host entry.
+   * @throws InvalidJSONException if the JSON is invalid.
+   * @throws InvalidObjectException if the object is not a valid host entry.
+   */
+  public static HostEntry read(JsonReader reader) throws InvalidJSONException, InvalidObjectException
+  {
+    return BINDING.read(reader);
+  }
+
   /**
    * Gets the host name.
    * @return the host name as a string.
@@ -68,6 +100,25 @@ public class HostEntry implements JSONSerializable
      return port;
    }
 
+  /**
+   * Serializes the object into a JSON encoded string.
+   * @return a string representing the JSON form of the object.
+   */
+  public String serialize()
+  {
+    return BINDING.toJSON(this);
+  }
+
+  /**
+   * Writes the JSON form of the object to {@code out}.
+   * @param out the JSON writer to write to.
+   * @throws IOException if the output can not be written.
+   */
+  public void writeTo(JsonWriter out) throws IOException
+  {
+    BINDING.write(this, out);
+  }
+
   /**
    * Coverts json data to an object of this type.
    * @param obj a JSON type to deserialize.
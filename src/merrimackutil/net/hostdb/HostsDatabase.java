@@ -18,7 +18,10 @@ package merrimackutil.net.hostdb;
 
 import merrimackutil.json.InvalidJSONException;
 import merrimackutil.json.JSONSerializable;
-import merrimackutil.json.JsonIO;
+import merrimackutil.json.JsonBinding;
+import merrimackutil.json.JsonReader;
+import merrimackutil.json.JsonWriter;
+import merrimackutil.json.lexer.TokenType;
 import merrimackutil.json.types.JSONType;
 import merrimackutil.json.types.JSONObject;
 import merrimackutil.json.types.JSONArray;
@@ -27,6 +30,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InvalidObjectException;
 
 /**
@@ -38,8 +42,24 @@ import java.io.InvalidObjectException;
  {
    private HashMap<String, HostEntry> hostMap;
 
+   // Reads and writes the database without intermediate JSON objects.
+   private static final JsonBinding<HostsDatabase> BINDING =
+       JsonBinding.builder("Hosts", HostsDatabase::new)
+       .listField("hosts", HostEntry.BINDING, db -> db.hostMap.values(),
+           (db, entry) -> db.hostMap.put(entry.getHostName(), entry))
+       .build();
+
+   /**
+    * Constructs an empty hosts database to be filled in by the binding.
+    */
+   private HostsDatabase()
+   {
+     hostMap = new HashMap<>();
+   }
+
    /**
     * Constructs a new hosts database from a given JSON file in the correct format.
+    * The file is read as a stream straight into the database.
     * @param file the file representing the JSON data.
     * @throws InvalidObjectException the JSON object is not a valid hosts database.
     * @throws FileNotFoundException the hosts database file could not be found.
@@ -48,7 +68,12 @@ import java.io.InvalidObjectException;
    public HostsDatabase(File file) throws InvalidObjectException, FileNotFoundException, InvalidJSONException
    {
     hostMap = new HashMap<>();
-    deserialize(JsonIO.readObject(file));
+    try (JsonReader reader = new JsonReader(file))
+    {
+      BINDING.readInto(reader, this);
+      if (reader.peek() != TokenType.EOF)
+        throw new InvalidJSONException("Hosts -- unexpected data after the object.");
+    }
    }
 
    /**
@@ -112,6 +137,25 @@ import java.io.InvalidObjectException;
      return hostMap.get(hostName).getAddress();
    }
 
+   /**
+    * Serializes the object into a JSON encoded string.
+    * @return a string representing the JSON form of the object.
+    */
+   public String serialize()
+   {
+     return BINDING.toJSON(this);
+   }
+
+   /**
+    * Writes the JSON form of the object to {@code out}.
+    * @param out the JSON writer to write to.
+    * @throws IOException if the output can not be written.
+    */
+   public void writeTo(JsonWriter out) throws IOException
+   {
+     BINDING.write(this, out);
+   }
+
    /**
     * Coverts json data to an object of this type.
     * @param obj a JSON type to deserialize.
@@ -0,0 +1,84 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import merrimackutil.codec.CborDecoder;
+import merrimackutil.codec.CborEncoder;
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.JsonIO;
+import merrimackutil.json.types.JSONObject;
+
+public class CborTest {
+
+    @Test
+    public void testKnownEncodings()
+    {
+        assertArrayEquals(new byte[] {0x18, 0x64}, CborEncoder.encode(100L));
+        assertArrayEquals(new byte[] {0x39, 0x03, (byte) 0xe7}, CborEncoder.encode(-1000L));
+        assertArrayEquals(new byte[] {0x62, 0x68, 0x69}, CborEncoder.encode("hi"));
+        assertArrayEquals(new byte[] {(byte) 0xf6}, CborEncoder.encode(null));
+        assertEquals(Double.valueOf(1.5), CborDecoder.decode(new byte[] {(byte) 0xf9, 0x3e, 0x00}));
+        assertEquals(Long.valueOf(-1), CborDecoder.decode(new byte[] {0x20}));
+        assertNull(CborDecoder.decode(new byte[] {(byte) 0xf7}));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, InvalidJSONException
+    {
+        JSONObject obj = JsonIO.readObject("{\"id\" : 9007199254740993, \"x\" : 0.1, \"f\" : 1.5, " +
+            "\"s\" : \"caf\u00e9\", \"a\" : [true, false, null, -7, {}], \"o\" : {\"n\" : []}}");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborEncoder enc = new CborEncoder(out);
+
+        enc.write(obj);
+        enc.write(obj.getArray("a"));
+        enc.flush();
+
+        CborDecoder dec = new CborDecoder(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(obj, dec.read());
+        assertEquals(obj.getArray("a"), dec.read());
+
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        new CborEncoder(buf).write(obj);
+        buf.flip();
+        assertEquals(obj, new CborDecoder(buf).read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated()
+    {
+        byte[] data = CborEncoder.encode("truncated");
+        CborDecoder.decode(java.util.Arrays.copyOf(data, data.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTagChain()
+    {
+        byte[] data = new byte[200000];
+
+        java.util.Arrays.fill(data, (byte) 0xc0);
+        CborDecoder.decode(data);
+    }
+}
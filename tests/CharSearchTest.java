@@ -0,0 +1,116 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import merrimackutil.json.lexer.CharSearch;
+
+public class CharSearchTest {
+
+    /**
+     * Finds the first quote, backslash or, if asked, new line one
+     * character at a time.
+     */
+    private static int scalar(char[] buf, int from, int to, boolean newLine)
+    {
+        int i = from;
+        while (i < to && buf[i] != '"' && buf[i] != '\\' && !(newLine && buf[i] == '\n'))
+            i++;
+        return i;
+    }
+
+    private static char[] filled(int len)
+    {
+        char[] buf = new char[len];
+        Arrays.fill(buf, 'a');
+        return buf;
+    }
+
+    @Test
+    public void testEachLane()
+    {
+        for (int lane = 0; lane < 4; lane++)
+        {
+            char[] buf = filled(12);
+            buf[4 + lane] = '"';
+            assertEquals(4 + lane, CharSearch.findQuote(buf, 0, buf.length));
+
+            buf[4 + lane] = '\\';
+            assertEquals(4 + lane, CharSearch.findQuote(buf, 0, buf.length));
+
+            buf[4 + lane] = '\n';
+            assertEquals(buf.length, CharSearch.findQuote(buf, 0, buf.length));
+            assertEquals(4 + lane, CharSearch.findQuoteOrNewLine(buf, 0, buf.length));
+        }
+    }
+
+    @Test
+    public void testTailAndBounds()
+    {
+        char[] buf = filled(7);
+
+        buf[6] = '"';
+        assertEquals(6, CharSearch.findQuote(buf, 0, 7));
+        assertEquals(6, CharSearch.findQuoteOrNewLine(buf, 1, 7));
+        assertEquals(5, CharSearch.findQuote(buf, 1, 5));
+        assertEquals(3, CharSearch.findQuote(buf, 3, 3));
+
+        buf[2] = '\n';
+        assertEquals(2, CharSearch.findQuoteOrNewLine(buf, 2, 7));
+        assertEquals(6, CharSearch.findQuote(buf, 2, 7));
+    }
+
+    @Test
+    public void testHighBytes()
+    {
+        // A quote, backslash or new line byte with the other byte set is
+        // not a match, and must not hide a real match later in the word.
+        char[] buf = {(char) 0x2222, (char) 0x0122, (char) 0x805c, (char) 0x0a0a,
+            (char) 0x5c22, (char) 0x220a, '"', 'a'};
+
+        assertEquals(6, CharSearch.findQuote(buf, 0, buf.length));
+        assertEquals(6, CharSearch.findQuoteOrNewLine(buf, 0, buf.length));
+
+        char[] none = {(char) 0x2222, (char) 0x0122, (char) 0x805c, (char) 0xffff,
+            (char) 0x8022, (char) 0x010a, '\u0000', '!'};
+        assertEquals(none.length, CharSearch.findQuote(none, 0, none.length));
+        assertEquals(none.length, CharSearch.findQuoteOrNewLine(none, 0, none.length));
+    }
+
+    @Test
+    public void testMatchesScalar()
+    {
+        char[] alphabet = {'a', '"', '\\', '\n', '\u0000', '\u0001', (char) 0x2222, (char) 0x0122,
+            (char) 0x805c, (char) 0x0a0a, (char) 0x8000, (char) 0xffff, '!', '#', '[', ']'};
+        Random rand = new Random(42);
+
+        for (int trial = 0; trial < 20000; trial++)
+        {
+            char[] buf = new char[rand.nextInt(24)];
+            for (int i = 0; i < buf.length; i++)
+                buf[i] = rand.nextInt(4) == 0 ? alphabet[rand.nextInt(alphabet.length)] : 'x';
+            int from = buf.length == 0 ? 0 : rand.nextInt(buf.length + 1);
+            int to = from + rand.nextInt(buf.length - from + 1);
+
+            assertEquals(scalar(buf, from, to, false), CharSearch.findQuote(buf, from, to));
+            assertEquals(scalar(buf, from, to, true), CharSearch.findQuoteOrNewLine(buf, from, to));
+        }
+    }
+}
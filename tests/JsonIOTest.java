@@ -0,0 +1,682 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.JsonFileCache;
+import merrimackutil.json.JsonIO;
+import merrimackutil.json.JsonReader;
+import merrimackutil.json.lexer.Lexer;
+import merrimackutil.json.parser.IncrementalJSONParser;
+import merrimackutil.json.parser.JSONParser;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+import merrimackutil.json.types.JSONValType;
+import merrimackutil.json.types.LazyJSONObject;
+import merrimackutil.net.hostdb.HostEntry;
+import merrimackutil.net.hostdb.HostsDatabase;
+
+public class JsonIOTest {
+
+    @Test
+    public void testReadObject() throws InvalidJSONException
+    {
+        JSONObject obj = JsonIO.readObject(
+            "{\"name\" : \"merrimack\", \"ok\" : true, \"none\" : null, \"vals\" : [1, 2.5, {}]}");
+
+        assertEquals("merrimack", obj.getString("name"));
+        assertEquals(Boolean.TRUE, obj.getBoolean("ok"));
+        assertTrue(obj.containsKey("none"));
+        assertNull(obj.get("none"));
+        assertEquals(3, obj.getArray("vals").size());
+        assertEquals(Double.valueOf(2.5), obj.getArray("vals").getDouble(1));
+        assertTrue(obj.getArray("vals").getObject(2).isEmpty());
+    }
+
+    @Test
+    public void testReadArray() throws InvalidJSONException
+    {
+        JSONArray array = JsonIO.readArray("[[], [null, false], \"x\"]");
+
+        assertEquals(3, array.size());
+        assertTrue(array.getArray(0).isEmpty());
+        assertTrue(array.getArray(1).isNull(0));
+        assertEquals("x", array.getString(2));
+    }
+
+    @Test
+    public void testDirectMatchesSyntaxTree()
+    {
+        String json = "{\"a\" : [1, {\"b\" : \"c\"}, true], \"d\" : -1.5e2}";
+
+        assertEquals(new JSONParser(json).parse().evaluate(), new JSONParser(json).parseDirect());
+    }
+
+    @Test
+    public void testReadLargeStringFromFile() throws IOException, InvalidJSONException
+    {
+        String blob = "QUJD".repeat(50000);
+        File file = File.createTempFile("json", ".json");
+        file.deleteOnExit();
+
+        PrintWriter out = new PrintWriter(file);
+        out.println("{\"blob\" : \"" + blob + "\", \"after\" : 1}");
+        out.close();
+
+        JSONObject obj = JsonIO.readObject(file);
+        assertEquals(blob, obj.getString("blob"));
+        assertEquals(Integer.valueOf(1), obj.getInt("after"));
+    }
+
+    @Test
+    public void testReadMappedUtf8() throws IOException, InvalidJSONException
+    {
+        String text = "caf\u00e9 \u4e2d \ud83d\ude00 ".repeat(5000);
+        Path path = Files.createTempFile("json", ".json");
+        path.toFile().deleteOnExit();
+
+        Files.writeString(path, "{\"text\" : \"" + text + "\"}");
+
+        assertEquals(text, JsonIO.readObject(path).getString("text"));
+    }
+
+    @Test
+    public void testLinesRoundTrip() throws IOException, InvalidJSONException
+    {
+        List<HostEntry> hosts = new ArrayList<>();
+        Path path = Files.createTempFile("json", ".ndjson");
+        path.toFile().deleteOnExit();
+
+        for (int i = 0; i < 100; i++)
+            hosts.add(new HostEntry(JsonIO.readObject(
+                "{\"host-name\" : \"h" + i + "\", \"address\" : \"10.0.0." + i + "\", \"port\" : " + i + "}")));
+        JsonIO.writeLines(hosts, path);
+
+        assertEquals(100, Files.readAllLines(path).size());
+        try (Stream<JSONObject> lines = JsonIO.readLines(path))
+        {
+            List<JSONObject> objs = lines.collect(Collectors.toList());
+            assertEquals(100, objs.size());
+            assertEquals("h42", objs.get(42).getString("host-name"));
+            assertEquals(Integer.valueOf(99), objs.get(99).getInt("port"));
+        }
+
+        Files.writeString(path, "{\"a\" : 1}\n{\"b\" : 2}{\"c\" : 3}\n");
+        try (Stream<JSONObject> lines = JsonIO.readLines(path))
+        {
+            lines.count();
+            fail("Two values on one line accepted.");
+        }
+        catch (IllegalStateException ex)
+        {
+            assertTrue(ex.getCause() instanceof InvalidJSONException);
+        }
+    }
+
+    @Test
+    public void testHostsDatabaseBinding() throws IOException, InvalidJSONException
+    {
+        File file = File.createTempFile("hosts", ".json");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file))
+        {
+            out.println("{\"hosts\" : [{\"host-name\" : \"a\", \"address\" : \"10.0.0.1\", " +
+                "\"port\" : 22, \"comment\" : [1, 2]}, {\"port\" : 80, \"address\" : \"10.0.0.2\", " +
+                "\"host-name\" : \"b\"}]}");
+        }
+
+        HostsDatabase db = new HostsDatabase(file);
+        assertEquals(22, db.getPort("a"));
+        assertEquals("10.0.0.2", db.getAddress("b"));
+
+        HostsDatabase copy = new HostsDatabase(JsonIO.readObject(db.serialize()));
+        assertEquals(80, copy.getPort("b"));
+        assertEquals(2, copy.getAllHosts().size());
+    }
+
+    @Test(expected = InvalidObjectException.class)
+    public void testHostEntryMissingKey() throws InvalidJSONException, InvalidObjectException
+    {
+        HostEntry.read(new JsonReader("{\"host-name\" : \"a\", \"port\" : 22}"));
+    }
+
+    @Test
+    public void testHostEntryWrongType() throws IOException, InvalidJSONException
+    {
+        try
+        {
+            HostEntry.read(new JsonReader("{\"host-name\" : \"a\", \"address\" : \"b\", \"port\" : \"x\"}"));
+            fail("Expected an InvalidObjectException.");
+        }
+        catch (InvalidObjectException ex)
+        {
+            assertTrue(ex.getMessage().contains("port"));
+        }
+
+        File file = File.createTempFile("hosts", ".json");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file))
+        {
+            out.println("{\"hosts\" : [{\"host-name\" : \"a\", \"address\" : \"10.0.0.1\", " +
+                "\"port\" : 2.5}]}");
+        }
+        try
+        {
+            new HostsDatabase(file);
+            fail("Expected an InvalidObjectException.");
+        }
+        catch (InvalidObjectException ex)
+        {
+            // The port is not an integer.
+        }
+
+        // Invalid JSON is still reported as such.
+        try
+        {
+            HostEntry.read(new JsonReader("{\"host-name\" : \"a\", \"address\" : \"b\", \"port\" : tru}"));
+            fail("Expected an InvalidJSONException.");
+        }
+        catch (InvalidJSONException ex)
+        {
+            // The port is not a valid token.
+        }
+    }
+
+    @Test
+    public void testIncrementalChunks() throws InvalidJSONException
+    {
+        String json = "{\"a\" : [1, -2.5e3, true, null, {\"x\" : \"caf\u00e9 \ud83d\ude00\"}], \"b\" : {}}";
+        byte[] bytes = (json + "\n[1, 2]").getBytes(StandardCharsets.UTF_8);
+        IncrementalJSONParser parser = new IncrementalJSONParser();
+        List<JSONType> vals = new ArrayList<>();
+
+        // Feed the input a byte at a time so every token is split.
+        for (int i = 0; i < bytes.length; i++)
+        {
+            parser.feed(ByteBuffer.wrap(bytes, i, 1));
+            while (parser.hasValue())
+                vals.add(parser.poll());
+        }
+        parser.endOfInput();
+
+        assertEquals(2, vals.size());
+        assertEquals(JsonIO.readObject(json), vals.get(0));
+        assertEquals(2, ((JSONArray) vals.get(1)).size());
+    }
+
+    @Test
+    public void testNumberTypes() throws InvalidJSONException
+    {
+        JSONObject obj = JsonIO.readObject(
+            "{\"id\" : 9007199254740993, \"n\" : 42, \"x\" : 0.1, \"e\" : 1e3}");
+
+        assertEquals(Long.valueOf(9007199254740993L), obj.getLong("id"));
+        assertNull(obj.getInt("id"));
+        assertEquals(Integer.valueOf(42), obj.getInt("n"));
+        assertEquals(Double.valueOf(42), obj.getDouble("n"));
+        assertEquals(Double.valueOf(0.1), obj.getDouble("x"));
+        assertEquals(Long.valueOf(1000), obj.getLong("e"));
+        assertEquals(JSONValType.LONG, obj.getValueType("id"));
+        assertEquals(JSONValType.INT, obj.getValueType("n"));
+        assertEquals(JSONValType.DOUBLE, obj.getValueType("x"));
+
+        JSONArray zeros = JsonIO.readArray("[-0, 0, -0.0]");
+        assertEquals(Double.valueOf(-0.0), zeros.get(0));
+        assertEquals(Long.valueOf(0), zeros.get(1));
+        assertEquals("[-0.0,0,-0.0]", zeros.toJSON());
+    }
+
+    @Test
+    public void testRepeatedKeysShared() throws InvalidJSONException
+    {
+        JSONArray array = JsonIO.readArray("[{\"name\" : 1}, {\"name\" : 2}]");
+        String first = ((JSONObject) array.get(0)).keySet().iterator().next();
+        String second = ((JSONObject) array.get(1)).keySet().iterator().next();
+
+        assertTrue(first == second);
+    }
+
+    @Test
+    public void testReadArrayParallel() throws IOException, InvalidJSONException
+    {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++)
+            json.append("{\"id\" : ").append(i).append(", \"tags\" : [\"a]\", null]}, ").append(i).append(", ");
+        json.append("\"end\"]");
+
+        JSONArray array = JsonIO.readArrayParallel(json.toString());
+        assertEquals(40001, array.size());
+        assertEquals(Integer.valueOf(12345), array.getObject(24690).getInt("id"));
+        assertEquals(Long.valueOf(12345), array.getLong(24691));
+        assertEquals("end", array.getString(40000));
+        assertTrue(JsonIO.readArrayParallel(" [ ] ").isEmpty());
+
+        // Neighbouring elements are parsed by one lexer and share keys.
+        assertSame(array.getObject(0).keySet().iterator().next(),
+            array.getObject(2).keySet().iterator().next());
+
+        Path file = Files.createTempFile("parallel", ".json");
+        try
+        {
+            Files.writeString(file, "[{\"s\" : \"caf\u00e9 \ud83d\ude00\"}, 2]", StandardCharsets.UTF_8);
+            JSONArray fromFile = JsonIO.readArrayParallel(file);
+            assertEquals("caf\u00e9 \ud83d\ude00", fromFile.getObject(0).getString("s"));
+            assertEquals(Long.valueOf(2), fromFile.getLong(1));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testReadArrayParallelBadElement() throws InvalidJSONException
+    {
+        JsonIO.readArrayParallel("[1, {\"a\" 2}, 3]");
+    }
+
+    @Test
+    public void testReadArrayParallelErrorPosition()
+    {
+        String json = "[1,\n  2,\n  {\"a\" 2}, 3]";
+
+        try
+        {
+            JsonIO.readArrayParallel(json);
+            fail("Expected an InvalidJSONException.");
+        }
+        catch (InvalidJSONException ex)
+        {
+            assertTrue(ex.getMessage().contains("Line: 3 Column: 8"));
+        }
+    }
+
+    @Test
+    public void testWriteTo() throws IOException, InvalidJSONException
+    {
+        String json = "{\"a\":[1,2.5,true,null,{}],\"b\":{\"c\":\"d\"},\"e\":[]}";
+        JSONObject obj = JsonIO.readObject(json);
+        StringWriter out = new StringWriter();
+
+        obj.writeTo(out);
+        assertEquals(obj.toJSON(), out.toString());
+        assertEquals(obj, JsonIO.readObject(out.toString()));
+        assertEquals("[1,\"x\",[]]", JsonIO.readArray("[1, \"x\", []]").toJSON());
+    }
+
+    @Test
+    public void testFormattedJSON() throws InvalidJSONException
+    {
+        JSONArray array = JsonIO.readArray("[1, {\"b\" : \"c\"}, [], {}]");
+
+        assertEquals("[\n   1,\n   {\n      \"b\" : \"c\"\n   },\n   [\n   ],\n   {\n   }\n]\n",
+            array.getFormattedJSON());
+    }
+
+    @Test
+    public void testLazyObject() throws InvalidJSONException
+    {
+        String json = "{\"name\" : \"a,b\", \"skip\" : {\"x\" : [1, {\"y\" : 2}]}, " +
+            "\"inner\" : {\"n\" : 7, \"ok\" : true}, \"list\" : [1, 2, 3], \"bad\" : tru}";
+        LazyJSONObject obj = JsonIO.readLazyObject(json);
+
+        assertEquals(5, obj.size());
+        assertEquals("a,b", obj.getString("name"));
+        assertEquals(Integer.valueOf(7), obj.getObject("inner").getInt("n"));
+        assertEquals(Boolean.TRUE, obj.getObject("inner").getBoolean("ok"));
+        assertEquals(3, obj.getArray("list").size());
+        assertNull(obj.getString("missing"));
+        assertEquals(JsonIO.readObject(json.replace("tru}", "true}")),
+            JsonIO.readLazyObject(json.replace("tru}", "true}")).toJSONObject());
+    }
+
+    @Test
+    public void testObjectOrder() throws InvalidJSONException
+    {
+        JSONObject obj = new JSONObject();
+        for (int i = 20; i > 0; i--)
+            obj.put("k" + i, Long.valueOf(i));
+        obj.put("k15", "x");
+        obj.remove("k20");
+        obj.remove("missing");
+
+        assertEquals(19, obj.size());
+        assertEquals("k19", obj.keySet().iterator().next());
+        assertEquals("x", obj.getString("k15"));
+        assertEquals(Integer.valueOf(3), obj.getInt("k3"));
+        assertNull(obj.get("k20"));
+
+        obj.entrySet().removeIf(ent -> !ent.getKey().equals("k1") && !ent.getKey().equals("k2"));
+        assertEquals("{\"k2\":2,\"k1\":1}", obj.toJSON());
+        assertEquals(obj, JsonIO.readObject(obj.toJSON()));
+        assertEquals(new HashMap<>(obj).hashCode(), obj.hashCode());
+    }
+
+    @Test
+    public void testObjectSerializeAndClone() throws Exception
+    {
+        JSONObject obj = JsonIO.readObject("{\"a\" : 1, \"b\" : {\"c\" : 2.5}, \"d\" : null}");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(obj.clone().freeze());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            JSONObject copy = (JSONObject) in.readObject();
+            assertEquals(obj, copy);
+            assertTrue(copy.isFrozen());
+            assertEquals("{\"a\":1,\"b\":{\"c\":2.5},\"d\":null}", copy.toJSON());
+        }
+
+        JSONObject clone = obj.clone();
+        clone.getObject("b").put("c", "changed");
+        assertEquals(JsonIO.readObject("{\"c\" : 2.5}"), obj.getObject("b"));
+        assertFalse(obj.freeze().clone().isFrozen());
+    }
+
+    @Test
+    public void testArraySerializeAndClone() throws Exception
+    {
+        JSONArray array = JsonIO.readArray("[[1, 2, 3], [0.5], {\"a\" : [\"x\"]}, null]");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(array);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            JSONArray copy = (JSONArray) in.readObject();
+            assertEquals(array, copy);
+            assertEquals(3L, copy.getArray(0).toLongArray()[2]);
+        }
+
+        JSONArray clone = array.clone();
+        clone.getArray(0).add(4L);
+        clone.getObject(2).getArray("a").clear();
+        assertEquals(JsonIO.readArray("[[1, 2, 3], [0.5], {\"a\" : [\"x\"]}, null]"), array);
+
+        JSONArray sized = new JSONArray();
+        sized.ensureCapacity(100);
+        sized.add(1.5);
+        sized.trimToSize();
+        assertEquals(Double.valueOf(1.5), sized.get(0));
+    }
+
+    @Test
+    public void testNumericArray() throws InvalidJSONException
+    {
+        JSONArray doubles = JsonIO.readArray("[1.5, -2.25, 3e2]");
+        JSONArray longs = JsonIO.readArray("[1, 2, 3]");
+        JSONArray mixed = JsonIO.readArray("[1, 2.5, \"x\"]");
+
+        assertEquals(-2.25, doubles.toDoubleArray()[1], 0.0);
+        assertNull(doubles.toLongArray());
+        assertEquals(3L, longs.toLongArray()[2]);
+        assertEquals(2.0, longs.toDoubleArray()[1], 0.0);
+        assertNull(mixed.toDoubleArray());
+        assertNull(JsonIO.readArray("[1.0, 1e400]").toLongArray());
+        assertNull(JsonIO.readArray("[1.0, -1e400]").toLongArray());
+        assertNull(JsonIO.readArray("[1.0, 9.3e18]").toLongArray());
+        JSONArray boxed = JsonIO.readArray("[\"x\", 1, 1e19]");
+        boxed.remove(0);
+        assertNull(boxed.toLongArray());
+        assertEquals(-4L, JsonIO.readArray("[2.0, -4.0]").toLongArray()[1]);
+        assertEquals("[1.5,-2.25,300.0]", doubles.toJSON());
+
+        longs.add(1, "y");
+        longs.remove(0);
+        assertEquals("[\"y\",2,3]", longs.toJSON());
+        assertEquals(Long.valueOf(2), longs.getLong(1));
+        assertEquals(new ArrayList<Object>(List.of(1L, 2.5, "x")), mixed);
+    }
+
+    @Test
+    public void testMixedNumericArray() throws InvalidJSONException
+    {
+        JSONArray series = JsonIO.readArray("[0, 1.5, 2, -3, 4.25]");
+
+        assertEquals(Long.valueOf(0), series.get(0));
+        assertEquals(Double.valueOf(1.5), series.get(1));
+        assertEquals(Long.valueOf(2), series.get(2));
+        assertEquals(4.25, series.toDoubleArray()[4], 0.0);
+        assertEquals("[0,1.5,2,-3,4.25]", series.toJSON());
+        assertEquals(new ArrayList<Object>(List.of(0L, 1.5, 2L, -3L, 4.25)), series);
+        assertEquals(List.of(0L, 1.5, 2L, -3L, 4.25).hashCode(), series.hashCode());
+
+        series.add(1, 7L);
+        series.remove(0);
+        series.set(1, 8L);
+        assertEquals("[7,8,2,-3,4.25]", series.toJSON());
+
+        // A long a double can not hold exactly keeps its value.
+        series.add(Long.MAX_VALUE);
+        assertEquals(Long.valueOf(Long.MAX_VALUE), series.getLong(5));
+        assertEquals(Double.valueOf(4.25), series.get(4));
+    }
+
+    @Test
+    public void testFreeze() throws InvalidJSONException
+    {
+        String json = "{\"a\" : 1, \"b\" : {\"c\" : [1, 2, {\"d\" : null}]}}";
+        JSONObject obj = JsonIO.readObject(json).freeze();
+        JSONObject changed = obj.with("a", 2L).with("e", new JSONArray(List.of(3.5)));
+
+        assertTrue(obj.getObject("b").getArray("c").getObject(2).isFrozen());
+        assertEquals(JsonIO.readObject(json), obj);
+        assertEquals(JsonIO.readObject(json).hashCode(), obj.hashCode());
+        assertEquals(Long.valueOf(1), obj.getLong("a"));
+        assertEquals(Long.valueOf(2), changed.getLong("a"));
+        assertTrue(changed.getArray("e").isFrozen());
+        assertSame(obj.getObject("b"), changed.getObject("b"));
+
+        try
+        {
+            obj.getObject("b").getArray("c").add(3L);
+            fail("Frozen array changed.");
+        }
+        catch (UnsupportedOperationException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testParserReset()
+    {
+        JSONParser parser = new JSONParser("{\"a\" : [1, 2}");
+        assertNull(parser.parseDirect());
+        assertTrue(parser.hasError());
+
+        parser.reset("{\"a\" : [1, 2]}");
+        JSONObject first = (JSONObject) parser.parseDirect();
+        assertFalse(parser.hasError());
+        parser.reset(new StringReader("{\"a\" : true}"));
+        JSONObject second = (JSONObject) parser.parseDirect();
+
+        assertEquals(2, first.getArray("a").size());
+        assertEquals(Boolean.TRUE, second.getBoolean("a"));
+        assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+    }
+
+    @Test
+    public void testPooledKeysAfterFullTable() throws InvalidJSONException
+    {
+        for (int i = 0; i < 5000; i++)
+            JsonIO.readObject("{\"key" + i + "\" : " + i + "}");
+
+        String first = JsonIO.readObject("{\"fresh\" : 1}").keySet().iterator().next();
+        String second = JsonIO.readObject("{\"fresh\" : 2}").keySet().iterator().next();
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testFileCache() throws IOException, InvalidJSONException
+    {
+        Path path = Files.createTempFile("json", ".json");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, "{\"port\" : 80}");
+
+        JsonFileCache cache = new JsonFileCache(Runnable::run);
+        JSONObject first = cache.get(path);
+        assertSame(first, cache.get(path));
+        assertTrue(first.isFrozen());
+
+        Files.writeString(path, "{\"port\" : 8080}");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+        cache.get(path);
+        assertEquals(Integer.valueOf(8080), cache.get(path).getInt("port"));
+
+        Files.writeString(path, "{\"port\" : ");
+        cache.get(path);
+        assertEquals(Integer.valueOf(8080), cache.get(path).getInt("port"));
+
+        // A rejected reload is tried again on the next lookup.
+        AtomicBoolean reject = new AtomicBoolean(true);
+        JsonFileCache picky = new JsonFileCache(task -> {
+            if (reject.get())
+                throw new RejectedExecutionException();
+            task.run();
+        });
+        Files.writeString(path, "{\"port\" : 1}");
+        assertEquals(Integer.valueOf(1), picky.get(path).getInt("port"));
+        Files.writeString(path, "{\"port\" : 22}");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(1000));
+        assertEquals(Integer.valueOf(1), picky.get(path).getInt("port"));
+        reject.set(false);
+        picky.get(path);
+        assertEquals(Integer.valueOf(22), picky.get(path).getInt("port"));
+    }
+
+    @Test
+    public void testAsync() throws Exception
+    {
+        Path path = Files.createTempFile("hosts", ".json");
+        path.toFile().deleteOnExit();
+        HostsDatabase db = new HostsDatabase(JsonIO.readObject("{\"hosts\" : [{\"host-name\" : \"a\", " +
+            "\"address\" : \"10.0.0.1\", \"port\" : 22}]}"));
+
+        JsonIO.writeAsync(db, path).get();
+        JSONObject obj = JsonIO.readObjectAsync(path, Runnable::run).get();
+        assertEquals(db.serialize(), obj.toJSON());
+
+        Files.writeString(path, "{\"a\" : ");
+        try
+        {
+            JsonIO.readObjectAsync(path).get();
+            fail("Invalid JSON read.");
+        }
+        catch (ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof InvalidJSONException);
+        }
+    }
+
+    @Test
+    public void testLineTracking()
+    {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < 2000; i++)
+            json.append("  {\"id\" : ").append(i).append(", \"name\" : \"n\"},\n");
+        json.append("  {\"id\" : x}\n]");
+
+        for (int i = 0; i < 3; i++)
+        {
+            Lexer tracked = (i == 0) ? new Lexer(json.toString()) :
+                new Lexer(new StringReader(json.toString()));
+            Lexer fast = (i == 2) ? new Lexer(json.toString()) :
+                new Lexer(new StringReader(json.toString()));
+            fast.setLineTracking(false);
+
+            JSONParser trackedParser = new JSONParser(tracked);
+            JSONParser fastParser = new JSONParser(fast);
+            trackedParser.parseDirect();
+            fastParser.parseDirect();
+            assertTrue(trackedParser.getErrorLog().startsWith("Error (Line: 2002 Column: 11)"));
+            assertEquals(trackedParser.getErrorLog(), fastParser.getErrorLog());
+        }
+    }
+
+    @Test
+    public void testEscapes() throws InvalidJSONException
+    {
+        String json = "{\"k\\\"ey\" : \"a\\nb\\t\\u00e9\\ud83d\\ude00\\\\\", \"plain\" : \"x/y\"}";
+        String text = "a\nb\t\u00e9\ud83d\ude00\\";
+        JSONObject obj = JsonIO.readObject(json);
+
+        assertEquals(text, obj.getString("k\"ey"));
+        assertEquals("x/y", obj.getString("plain"));
+        assertEquals(obj, new JSONParser(json).parse().evaluate());
+        assertEquals(text, JsonIO.readLazyObject(json).getString("k\"ey"));
+        assertEquals(text, JsonIO.select(json, "$['k\"ey']").getString(0));
+
+        IncrementalJSONParser parser = new IncrementalJSONParser();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++)
+            parser.feed(ByteBuffer.wrap(bytes, i, 1));
+        assertEquals(obj, parser.poll());
+
+        obj.put("ctl", "\u0001\"");
+        assertEquals("{\"k\\\"ey\":\"a\\nb\\t\u00e9\ud83d\ude00\\\\\",\"plain\":\"x/y\"," +
+            "\"ctl\":\"\\u0001\\\"\"}", obj.toJSON());
+        assertEquals(obj, JsonIO.readObject(obj.getFormattedJSON()));
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testMissingBrace() throws InvalidJSONException
+    {
+        JsonIO.readObject("{\"a\" : 1");
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testTrailingTokens() throws InvalidJSONException
+    {
+        JsonIO.readObject("{\"a\" : 1} {");
+    }
+}
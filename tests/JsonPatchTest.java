@@ -0,0 +1,109 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.JsonIO;
+import merrimackutil.json.JsonPatch;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+
+public class JsonPatchTest {
+
+    @Test
+    public void testDiffAndApply() throws InvalidJSONException
+    {
+        JSONObject source = JsonIO.readObject("{\"a\" : 1, \"b\" : [1, 2, 3, 4], " +
+            "\"c\" : {\"d\" : \"x\", \"e/f\" : true}, \"g\" : null}");
+        JSONObject target = JsonIO.readObject("{\"a\" : 1.5, \"b\" : [0, 1, 3, 4, 5], " +
+            "\"c\" : {\"d\" : \"y\"}, \"h\" : [7]}");
+        JSONArray patch = JsonPatch.diff(source, target);
+
+        assertEquals(target, JsonPatch.apply(source, JsonIO.readArray(patch.toJSON())));
+        assertEquals(0, JsonPatch.diff(target, target).size());
+    }
+
+    @Test
+    public void testOperations() throws InvalidJSONException
+    {
+        JSONObject doc = JsonIO.readObject("{\"foo\" : {\"bar\" : \"baz\", \"waldo\" : \"fred\"}, " +
+            "\"qux\" : {\"corge\" : \"grault\"}, \"list\" : [1, 2]}");
+        JSONArray patch = JsonIO.readArray("[" +
+            "{\"op\" : \"test\", \"path\" : \"/foo/bar\", \"value\" : \"baz\"}," +
+            "{\"op\" : \"move\", \"from\" : \"/foo/waldo\", \"path\" : \"/qux/thud\"}," +
+            "{\"op\" : \"copy\", \"from\" : \"/list\", \"path\" : \"/copy\"}," +
+            "{\"op\" : \"add\", \"path\" : \"/list/-\", \"value\" : 3}," +
+            "{\"op\" : \"add\", \"path\" : \"/list/0\", \"value\" : 0}," +
+            "{\"op\" : \"remove\", \"path\" : \"/list/1\"}," +
+            "{\"op\" : \"replace\", \"path\" : \"/foo/bar\", \"value\" : [true]}]");
+
+        assertEquals(JsonIO.readObject("{\"foo\" : {\"bar\" : [true]}, " +
+            "\"qux\" : {\"corge\" : \"grault\", \"thud\" : \"fred\"}, \"list\" : [0, 2, 3], " +
+            "\"copy\" : [1, 2]}"), JsonPatch.apply(doc, patch));
+    }
+
+    @Test
+    public void testNumbersByValue() throws InvalidJSONException
+    {
+        JSONObject doc = JsonIO.readObject("{\"x\" : 1.0, \"y\" : [2, {\"z\" : 3}]}");
+        JSONObject same = JsonIO.readObject("{\"x\" : 1, \"y\" : [2.0, {\"z\" : 3e0}]}");
+
+        JsonPatch.apply(doc, JsonIO.readArray("[{\"op\" : \"test\", \"path\" : \"/x\", \"value\" : 1}," +
+            "{\"op\" : \"test\", \"path\" : \"/y\", \"value\" : [2.0, {\"z\" : 3.0}]}]"));
+        assertEquals(0, JsonPatch.diff(doc, same).size());
+        assertEquals(1, JsonPatch.diff(JsonIO.readObject("{\"x\" : 9007199254740993}"),
+            JsonIO.readObject("{\"x\" : 9007199254740992.0}")).size());
+    }
+
+    @Test
+    public void testReplaceKeepsOrder() throws InvalidJSONException
+    {
+        JSONObject doc = JsonIO.readObject("{\"a\" : 1, \"b\" : [1, 2, 3]}");
+
+        JsonPatch.apply(doc, JsonIO.readArray("[{\"op\" : \"replace\", \"path\" : \"/a\", \"value\" : 5}," +
+            "{\"op\" : \"replace\", \"path\" : \"/b/1\", \"value\" : \"two\"}]"));
+        assertEquals("{\"a\":5,\"b\":[1,\"two\",3]}", doc.toJSON());
+    }
+
+    @Test
+    public void testAllOrNothing() throws InvalidJSONException
+    {
+        String json = "{\"a\" : 1, \"b\" : [1, 2]}";
+        JSONObject doc = JsonIO.readObject(json);
+
+        try
+        {
+            JsonPatch.apply(doc, JsonIO.readArray("[{\"op\" : \"remove\", \"path\" : \"/a\"}," +
+                "{\"op\" : \"add\", \"path\" : \"/b/-\", \"value\" : 3}," +
+                "{\"op\" : \"test\", \"path\" : \"/b/0\", \"value\" : 9}]"));
+            fail("Failed test op was ignored.");
+        }
+        catch (InvalidJSONException ex)
+        {
+            assertEquals(JsonIO.readObject(json), doc);
+        }
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testFailedTest() throws InvalidJSONException
+    {
+        JsonPatch.apply(JsonIO.readObject("{\"a\" : 1}"),
+            JsonIO.readArray("[{\"op\" : \"test\", \"path\" : \"/a\", \"value\" : 2}]"));
+    }
+}
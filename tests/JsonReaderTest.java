@@ -0,0 +1,145 @@
+/*
+ *   Copyright (C) 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import merrimackutil.json.InvalidJSONException;
+import merrimackutil.json.JsonIO;
+import merrimackutil.json.JsonReader;
+import merrimackutil.json.lexer.TokenType;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testWalkObject() throws InvalidJSONException
+    {
+        JsonReader reader = new JsonReader(
+            "{\"name\" : \"host\", \"port\" : 8080, \"load\" : 0.25, \"up\" : true, \"tags\" : null}");
+
+        reader.beginObject();
+        assertEquals("name", reader.nextName());
+        assertEquals("host", reader.nextString());
+        assertEquals("port", reader.nextName());
+        assertEquals(8080, reader.nextInt());
+        assertEquals("load", reader.nextName());
+        assertEquals(0.25, reader.nextDouble(), 0.0);
+        assertEquals("up", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("tags", reader.nextName());
+        reader.nextNull();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(TokenType.EOF, reader.peek());
+    }
+
+    @Test
+    public void testSkipAndRead() throws InvalidJSONException
+    {
+        JsonReader reader = new JsonReader(
+            "[{\"skip\" : [1, {\"deep\" : []}], \"keep\" : \"a\"}, {\"keep\" : \"b\"}]");
+        String keeps = "";
+
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                if (reader.nextName().equals("keep"))
+                    keeps += reader.nextString();
+                else
+                    reader.skipValue();
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        assertEquals("ab", keeps);
+    }
+
+    @Test
+    public void testNextObject() throws InvalidJSONException
+    {
+        JsonReader reader = new JsonReader("[{\"a\" : [1, 2]}, {\"b\" : {}}]");
+
+        reader.beginArray();
+        JSONObject first = reader.nextObject();
+        JSONObject second = reader.nextObject();
+        reader.endArray();
+
+        assertEquals(2, first.getArray("a").size());
+        assertTrue(second.getObject("b").isEmpty());
+    }
+
+    @Test
+    public void testSelect() throws InvalidJSONException
+    {
+        String json = "{\"hosts\" : [{\"address\" : \"a\", \"port\" : 1}, " +
+            "{\"skip\" : [1, {\"address\" : \"x\"}], \"address\" : \"b\"}], \"address\" : \"c\"}";
+
+        JSONArray all = JsonIO.select(json, "$.hosts[*].address");
+        assertEquals(2, all.size());
+        assertEquals("a", all.getString(0));
+        assertEquals("b", all.getString(1));
+        assertEquals("b", JsonIO.select(json, "$['hosts'][1].address").getString(0));
+        assertEquals(2, JsonIO.select(json, "$.*").size());
+        assertTrue(JsonIO.select(json, "$.missing[0]").isEmpty());
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testSelectTrailingGarbage() throws InvalidJSONException
+    {
+        JsonIO.select("{\"a\" : 1} garbage", "$.a");
+    }
+
+    @Test
+    public void testSingleAndMultiValue() throws InvalidJSONException
+    {
+        JsonReader single = new JsonReader("{\"a\" : 1} {\"b\" : 2}");
+        single.nextObject();
+        try
+        {
+            single.hasNext();
+            fail("Second top-level value accepted.");
+        }
+        catch (InvalidJSONException ex)
+        {
+            // Expected.
+        }
+
+        JsonReader multi = new JsonReader("{\"a\" : 1} {\"b\" : 2} 3");
+        multi.setMultiValue(true);
+        assertEquals(1, multi.nextObject().size());
+        assertEquals(1, multi.nextObject().size());
+        assertEquals(3, multi.nextInt());
+        multi.endDocument();
+    }
+
+    @Test(expected = InvalidJSONException.class)
+    public void testMissingComma() throws InvalidJSONException
+    {
+        JsonReader reader = new JsonReader("[1 2]");
+
+        reader.beginArray();
+        reader.nextDouble();
+        reader.nextDouble();
+    }
+}
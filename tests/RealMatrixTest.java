@@ -28,6 +28,16 @@ public class RealMatrixTest {
         assertEquals("[ 1.000 0.000 0.000 ]\n[ 0.000 1.000 0.000 ]\n[ 0.000 0.000 1.000 ]", mat.toString());
     }
 
+    @Test
+    public void testFromRows()
+    {
+        double[][] rows = { { 1.0, 0.0, 0.0 }, { 0.0, 1.0, 0.0 }, { 0.0, 0.0, 1.0 } };
+        RealMatrix mat = new RealMatrix(rows);
+        rows[0][0] = 5.0;
+
+        assertEquals("Build from rows.", RealMatrix.getIdentity(3), mat);
+    }
+
     @Test
     public void testSquareMatrixMultiply() 
     {